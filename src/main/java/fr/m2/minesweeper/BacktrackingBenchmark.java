@@ -0,0 +1,112 @@
+package fr.m2.minesweeper;
+
+import fr.m2.minesweeper.model.MinesweeperInstance;
+import fr.m2.minesweeper.solver.BacktrackingMinesweeperSolver;
+import fr.m2.minesweeper.solver.BacktrackingMinesweeperSolver.Result;
+import fr.m2.minesweeper.solver.BacktrackingMinesweeperSolver.Variant;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compare les variantes du backtracking (noeuds, temps, timeouts) :
+ * - sur les instances déjà exportées dans data/instances/, avec le même budget que ExperimentRunner
+ *   (maxSolutions=50) ;
+ * - en énumération complète (sans maxSolutions) sur quelques 7x7 très peu contraintes, où presque
+ *   tous les sous-arbres contiennent des solutions : les nogoods y élaguent peu et coûtent leur
+ *   surveillance, l'ordre par activité y fait plus de noeuds que l'ordre par degré.
+ * Résultat principal : les noeuds sur les instances finies par toutes les variantes
+ * (un timeout arrête le compte de noeuds, et le temps dépend du coût par noeud).
+ */
+public class BacktrackingBenchmark {
+
+    private static final long[] UNCAPPED_SEEDS = {9001, 9015, 9034, 9085};
+
+    public static void main(String[] args) {
+        File[] files = new File("data/instances").listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null || files.length == 0) {
+            System.out.println("Aucune instance dans data/instances/ (lancer ExperimentRunner d'abord).");
+        } else {
+            Arrays.sort(files);
+            List<String> names = new ArrayList<>();
+            List<MinesweeperInstance> instances = new ArrayList<>();
+            try {
+                for (File f : files) {
+                    names.add(f.getName());
+                    instances.add(MinesweeperInstance.importFromJson(f.getPath()));
+                }
+            } catch (IOException e) {
+                System.err.println("Erreur IO : " + e.getMessage());
+                return;
+            }
+            compare("data/instances, maxSolutions=50, 2s", names, instances, 50, "2s");
+        }
+
+        List<String> names = new ArrayList<>();
+        List<MinesweeperInstance> instances = new ArrayList<>();
+        for (long seed : UNCAPPED_SEEDS) {
+            names.add("7x7_mines0.20_keep0.30_seed" + seed);
+            instances.add(MinesweeperInstance.randomFullInstance(7, 7, 0.2, seed)
+                    .withRandomHiding(0.3, seed + 999));
+        }
+        System.out.println();
+        compare("énumération complète (sans maxSolutions), 20s", names, instances, Integer.MAX_VALUE, "20s");
+    }
+
+    private static void compare(String title, List<String> names, List<MinesweeperInstance> instances,
+                                int maxSolutions, String timeLimit) {
+        Variant[] variants = Variant.values();
+        long[] totalNodes = new long[variants.length];
+        long[] totalMs = new long[variants.length];
+        int[] timeouts = new int[variants.length];
+        long[] commonNodes = new long[variants.length];
+        long[] commonMs = new long[variants.length];
+        int common = 0;
+
+        BacktrackingMinesweeperSolver bt = new BacktrackingMinesweeperSolver();
+
+        System.out.println("=== " + title + " ===");
+        for (int i = 0; i < instances.size(); i++) {
+            StringBuilder line = new StringBuilder(names.get(i));
+            long[] nodes = new long[variants.length];
+            long[] ms = new long[variants.length];
+            boolean allFinished = true;
+
+            for (int v = 0; v < variants.length; v++) {
+                Result res = bt.enumerate(instances.get(i), maxSolutions, timeLimit, variants[v]);
+                totalNodes[v] += res.nodes;
+                totalMs[v] += res.timeMs;
+                if (res.timeout) timeouts[v]++;
+                nodes[v] = res.nodes;
+                ms[v] = res.timeMs;
+                allFinished &= !res.timeout;
+
+                line.append(String.format(" | %s: %d sol, %d noeuds, %d ms%s",
+                        variants[v].name(), res.solutionsFound, res.nodes, res.timeMs,
+                        res.timeout ? " (TIMEOUT)" : ""));
+            }
+            System.out.println(line);
+            if (allFinished) {
+                common++;
+                for (int v = 0; v < variants.length; v++) {
+                    commonNodes[v] += nodes[v];
+                    commonMs[v] += ms[v];
+                }
+            }
+        }
+
+        System.out.println();
+        System.out.println("Sur les " + common + " instances finies par toutes les variantes :");
+        for (int v = 0; v < variants.length; v++) {
+            System.out.printf("%-16s noeuds=%d temps=%d ms%n", variants[v].name(), commonNodes[v], commonMs[v]);
+        }
+        System.out.println("Toutes instances :");
+        for (int v = 0; v < variants.length; v++) {
+            System.out.printf("%-16s noeuds=%d temps=%d ms timeouts=%d%n",
+                    variants[v].name(), totalNodes[v], totalMs[v], timeouts[v]);
+        }
+    }
+}
@@ -4,38 +4,108 @@ import fr.m2.minesweeper.model.MinesweeperInstance;
 import fr.m2.minesweeper.solver.BacktrackingMinesweeperSolver;
 import fr.m2.minesweeper.solver.ChocoMinesweeperSolver;
 import fr.m2.minesweeper.solver.ChocoMinesweeperSolver.ExperimentResult;
-import fr.m2.minesweeper.solver.ChocoMinesweeperSolver.Strategy;
+import fr.m2.minesweeper.solver.SolverSelector;
+
+import fr.m2.minesweeper.util.ResultJournal;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
 
 public class ExperimentRunner {
 
+    private static final int FLUSH_EVERY = 20;   // lignes de résultats par écriture disque
+
+    /**
+     * Sans argument : toutes les méthodes complètes sur toutes les instances (results_complete.csv).
+     * --adaptive : une seule méthode par instance, choisie par SolverSelector appris sur
+     * results_complete.csv (résultats dans results_adaptive.csv).
+     * --fresh : ignore les résultats déjà présents et repart de zéro.
+     * --config fichier.properties : balayage décrit par SweepConfig (sinon le balayage par défaut).
+     * --shard k/N : ne traite que le shard k (0 <= k < N) et écrit dans son propre fichier
+     * (utilisé par ShardedExperimentRunner, un processus par shard).
+     *
+     * Par défaut, le CSV de résultats sert de journal : une exécution interrompue reprend
+     * là où elle s'était arrêtée, sans refaire les jobs déjà écrits.
+     */
     public static void main(String[] args) {
+        List<String> options = Arrays.asList(args);
+        boolean fresh = options.contains("--fresh");
         try {
-            runExperiments();
+            SweepConfig cfg = new SweepConfig();
+            int configAt = options.indexOf("--config");
+            if (configAt >= 0 && configAt + 1 < args.length) {
+                cfg = SweepConfig.load(args[configAt + 1]);
+            }
+
+            if (options.contains("--adaptive")) {
+                runAdaptive(cfg, fresh);
+                return;
+            }
+
+            int shardAt = options.indexOf("--shard");
+            if (shardAt >= 0 && shardAt + 1 < args.length) {
+                String[] kn = args[shardAt + 1].split("/");
+                int shard = Integer.parseInt(kn[0]);
+                int nbShards = Integer.parseInt(kn[1]);
+                runShard(cfg, shard, nbShards, fresh);
+            } else {
+                runExperiments(cfg, null, cfg.output, 0, 1, fresh);
+            }
         } catch (IOException e) {
             System.err.println("Erreur IO : " + e.getMessage());
+            System.exit(1);
         }
     }
 
     public static void runExperiments() throws IOException {
+        runExperiments(false);
+    }
+
+    public static void runExperiments(boolean fresh) throws IOException {
+        SweepConfig cfg = new SweepConfig();
+        runExperiments(cfg, null, cfg.output, 0, 1, fresh);
+    }
 
-        int[] sizes = {8, 12};
-        double[] keepProbabilities = {0.3, 0.5, 0.7};
-        int nbSeeds = 5;
+    public static void runShard(SweepConfig cfg, int shard, int nbShards, boolean fresh) throws IOException {
+        if (nbShards < 1 || shard < 0 || shard >= nbShards) {
+            throw new IOException("shard invalide : " + shard + "/" + nbShards);
+        }
+        runExperiments(cfg, null, shardOutput(cfg, shard, nbShards), shard, nbShards, fresh);
+    }
 
-        int maxSolutions = 50;        // limite d'énumération pour comparer
-        double mineProbability = 0.18;
+    /** Fichier de résultats du shard k/N, à côté de la sortie finale (ex. results_complete.shard1of4.csv). */
+    public static String shardOutput(SweepConfig cfg, int shard, int nbShards) {
+        String base = cfg.output.endsWith(".csv") ? cfg.output.substring(0, cfg.output.length() - 4) : cfg.output;
+        return base + ".shard" + shard + "of" + nbShards + ".csv";
+    }
 
-        String timeLimit = "2s";      // même budget temps pour tous les solveurs complets
+    public static void runAdaptive(SweepConfig cfg, boolean fresh) throws IOException {
+        List<SolverSelector.Sample> samples = SolverSelector.loadSamples(
+                Collections.singletonList(cfg.output), "data/instances");
+        if (samples.isEmpty()) {
+            throw new IOException(cfg.output + " : aucune instance résolue par toutes les méthodes,"
+                    + " impossible d'apprendre le sélecteur (lancer d'abord le balayage complet)");
+        }
+        int depth = SolverSelector.chooseDepth(samples, 2, 3);
+        SolverSelector selector = SolverSelector.train(samples, depth, 3);
+        System.out.println("Règles du sélecteur :");
+        System.out.print(selector.describe());
 
-        Strategy[] chocoStrategies = new Strategy[]{
-                Strategy.DEFAULT,
-                Strategy.WDEG_MINE_FIRST
-        };
+        runExperiments(cfg, selector, "data/results/results_adaptive.csv", 0, 1, fresh);
+    }
+
+    /**
+     * selector == null => toutes les méthodes de la configuration ; sinon seulement la méthode choisie.
+     * Seules les instances du shard (shard, nbShards) sont traitées (0, 1 => tout le balayage).
+     */
+    private static void runExperiments(SweepConfig cfg, SolverSelector selector, String outCsvPath,
+                                       int shard, int nbShards, boolean fresh) throws IOException {
+
+        List<SweepConfig.InstanceJob> jobs = cfg.instanceJobs(shard, nbShards);
 
         // --- Dossiers clean ---
         File resultsDir = new File("data/results");
@@ -43,99 +113,123 @@ public class ExperimentRunner {
         resultsDir.mkdirs();
         instancesDir.mkdirs();
 
-        // CSV complet (2 méthodes complètes)
-        String outCsvPath = "data/results/results_complete.csv";
+        int skipped = 0;
 
-        try (PrintWriter out = new PrintWriter(new FileWriter(outCsvPath))) {
+        try (ResultJournal journal = new ResultJournal(outCsvPath, FLUSH_EVERY, fresh)) {
 
-            out.println("size,keepProbability,seed,complete_method,variant,solutionsFound,timeMs,status,instance_file");
+            if (journal.doneCount() > 0) {
+                System.out.println("Reprise : " + journal.doneCount() + " jobs déjà dans " + outCsvPath);
+            }
+            if (nbShards > 1) {
+                System.out.println("Shard " + shard + "/" + nbShards + " : " + jobs.size() + " instances");
+            }
 
             ChocoMinesweeperSolver choco = new ChocoMinesweeperSolver();
             BacktrackingMinesweeperSolver bt = new BacktrackingMinesweeperSolver();
 
-            for (int size : sizes) {
-                for (double keepProb : keepProbabilities) {
-                    for (int s = 0; s < nbSeeds; s++) {
+            for (SweepConfig.InstanceJob job : jobs) {
+                int size = job.size;
+                double keepProb = job.keepProbability;
+                long seed = job.seed;
+
+                String instanceFile = job.instanceFile();
+                String instancePath = "data/instances/" + instanceFile;
+
+                // 1) Instance complète (mines + indices) puis indices masqués : génération
+                // déterministe, comparée au fichier déjà exporté (le nom ne contient pas
+                // mineProbability, un fichier d'un autre balayage serait sinon relu tel quel)
+                MinesweeperInstance full = MinesweeperInstance.randomFullInstance(
+                        size, size, cfg.mineProbability, seed
+                );
+                MinesweeperInstance partial = full.withRandomHiding(keepProb, seed + 999);
+                if (!fresh && new File(instancePath).exists()) {
+                    MinesweeperInstance stored = MinesweeperInstance.importFromJson(instancePath);
+                    if (!sameInstance(stored, partial)) {
+                        throw new IOException(instancePath + " ne correspond pas à la configuration"
+                                + " (mineProbability=" + cfg.mineProbability + ") : relancer avec --fresh"
+                                + " ou changer de seedStart");
+                    }
+                } else {
+                    partial.exportToJson(instancePath);
+                }
 
-                        long seed = 1000L + s;
+                // Toutes les méthodes déjà faites : rien à relancer
+                if (selector == null && allDone(journal, job, cfg.methods)) {
+                    skipped += cfg.methods.size();
+                    continue;
+                }
 
-                        // 1) Générer instance complète (mines + indices)
-                        MinesweeperInstance full = MinesweeperInstance.randomFullInstance(
-                                size, size, mineProbability, seed
-                        );
+                // 2) Méthodes à lancer, moins celles déjà dans le journal
+                List<SolverSelector.Choice> methods = selector == null
+                        ? cfg.methods
+                        : Collections.singletonList(selector.select(partial));
 
-                        // 2) Instance partielle (indices masqués)
-                        MinesweeperInstance partial = full.withRandomHiding(keepProb, seed + 999);
+                for (SolverSelector.Choice m : methods) {
 
-                        // 3) Export JSON de l'instance partielle
-                        String instanceFile = String.format(
-                                "instance_%dx%d_keep%.2f_seed%d.json",
-                                size, size, keepProb, seed
-                        );
-                        String instancePath = "data/instances/" + instanceFile;
-                        partial.exportToJson(instancePath);
-
-                        
-                        // Méthode complète #1 : CHOCO
-                    
-                        for (Strategy strat : chocoStrategies) {
-
-                            ExperimentResult res = choco.enumerateForExperiment(
-                                    partial, maxSolutions, strat, timeLimit
-                            );
-
-                            String status = res.timeoutReached ? "TIMEOUT" : "OK";
-
-                            out.printf("%d,%.2f,%d,%s,%s,%d,%d,%s,%s%n",
-                                    size, keepProb, seed,
-                                    "CHOCO", strat.name(),
-                                    res.numberOfSolutions, res.timeMs, status, instanceFile
-                            );
-
-                            System.out.println(
-                                    "Fait: size=" + size +
-                                    " keep=" + keepProb +
-                                    " seed=" + seed +
-                                    " method=CHOCO" +
-                                    " variant=" + strat.name() +
-                                    " -> solutions=" + res.numberOfSolutions +
-                                    ", time=" + res.timeMs + " ms" +
-                                    " (" + status + ")" +
-                                    " instance=" + instanceFile
-                            );
-                        }
-
-                       
-                        // Méthode complète #2 : BACKTRACKING + FC
-                        
-                        BacktrackingMinesweeperSolver.Result btRes =
-                                bt.enumerate(partial, maxSolutions, timeLimit);
-
-                        String btStatus = btRes.timeout ? "TIMEOUT" : "OK";
+                    if (journal.isDone(size, keepProb, seed, m.method, m.variant)) {
+                        skipped++;
+                        continue;
+                    }
 
-                        out.printf("%d,%.2f,%d,%s,%s,%d,%d,%s,%s%n",
-                                size, keepProb, seed,
-                                "BACKTRACKING", "FC_BOUNDS",
-                                btRes.solutionsFound, btRes.timeMs, btStatus, instanceFile
-                        );
+                    int solutions;
+                    long timeMs;
+                    boolean timeout;
 
-                        System.out.println(
-                                "Fait: size=" + size +
-                                " keep=" + keepProb +
-                                " seed=" + seed +
-                                " method=BACKTRACKING" +
-                                " variant=FC_BOUNDS" +
-                                " -> solutions=" + btRes.solutionsFound +
-                                ", time=" + btRes.timeMs + " ms" +
-                                " (" + btStatus + ")" +
-                                " instance=" + instanceFile
+                    if (m.method.equals("CHOCO")) {
+                        ExperimentResult res = choco.enumerateForExperiment(
+                                partial, cfg.maxSolutions, m.strategy(), cfg.timeLimit
                         );
+                        solutions = res.numberOfSolutions;
+                        timeMs = res.timeMs;
+                        timeout = res.timeoutReached;
+                    } else {
+                        BacktrackingMinesweeperSolver.Result btRes =
+                                bt.enumerate(partial, cfg.maxSolutions, cfg.timeLimit, m.backtrackingVariant());
+                        solutions = btRes.solutionsFound;
+                        timeMs = btRes.timeMs;
+                        timeout = btRes.timeout;
                     }
+
+                    String status = timeout ? "TIMEOUT" : "OK";
+
+                    journal.append(size, keepProb, seed, m.method, m.variant,
+                            solutions, timeMs, status, instanceFile);
+
+                    System.out.println(
+                            "Fait: size=" + size +
+                            " keep=" + keepProb +
+                            " seed=" + seed +
+                            " method=" + m.method +
+                            " variant=" + m.variant +
+                            " -> solutions=" + solutions +
+                            ", time=" + timeMs + " ms" +
+                            " (" + status + ")" +
+                            " instance=" + instanceFile
+                    );
                 }
+                // Instance terminée : ses résultats sont sur disque avant de passer à la suivante
+                journal.flush();
             }
         }
 
+        if (skipped > 0) {
+            System.out.println("Jobs déjà faits (ignorés) : " + skipped);
+        }
         System.out.println("Expériences terminées. Résultats : " + outCsvPath);
         System.out.println("Instances exportées dans : data/instances/");
     }
+
+    private static boolean sameInstance(MinesweeperInstance a, MinesweeperInstance b) {
+        return a.getRows() == b.getRows()
+                && a.getCols() == b.getCols()
+                && Objects.equals(a.getTotalMines(), b.getTotalMines())
+                && Arrays.deepEquals(a.getClues(), b.getClues());
+    }
+
+    private static boolean allDone(ResultJournal journal, SweepConfig.InstanceJob job, List<SolverSelector.Choice> methods) {
+        for (SolverSelector.Choice m : methods) {
+            if (!journal.isDone(job.size, job.keepProbability, job.seed, m.method, m.variant)) return false;
+        }
+        return true;
+    }
 }
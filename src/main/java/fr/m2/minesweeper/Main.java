@@ -4,6 +4,10 @@ import fr.m2.minesweeper.model.MinesweeperInstance;
 import fr.m2.minesweeper.solver.ChocoMinesweeperSolver;
 import fr.m2.minesweeper.solver.ChocoMinesweeperSolver.Strategy;
 import fr.m2.minesweeper.solver.ChocoMinesweeperSolver.ExperimentResult;
+import fr.m2.minesweeper.solver.UniformSolutionSampler;
+import fr.m2.minesweeper.solver.ZddSolutionSet;
+
+import java.util.Random;
 
 public class Main {
 
@@ -41,6 +45,36 @@ public class Main {
         System.out.println("Solutions trouvées: " + res.numberOfSolutions);
         System.out.println("Temps (ms): " + res.timeMs);
         System.out.println("Timeout atteint ? " + res.timeoutReached);
+
+        
+        System.out.println("\n--- Ensemble complet des solutions (ZDD) ---");
+        ZddSolutionSet zdd = ZddSolutionSet.compile(partial);
+        System.out.println("Solutions (exact): " + zdd.count());
+        System.out.println("Noeuds: " + zdd.nodeCount() + ", largeur max de frontière: " + zdd.getMaxFrontierWidth());
+        if (zdd.count().signum() > 0) {
+            printProbabilities(zdd.marginals());
+            System.out.println("Une solution tirée uniformément :");
+            printMines(zdd.sample(new Random(7L)));
+        }
+
+        
+        System.out.println("\n--- Échantillonnage uniforme (16x16) ---");
+        MinesweeperInstance big = MinesweeperInstance.random16x16(42L).withRandomHiding(0.3, 123L);
+        UniformSolutionSampler.Estimate est = new UniformSolutionSampler().estimate(
+                big,
+                0.01,   // demi-largeur visée de l'IC 95 %
+                "5s",   // limite de temps
+                1L      // graine
+        );
+        if (est == null) {
+            System.out.println("Aucune solution trouvée.");
+        } else {
+            System.out.println("Mode: " + est.mode + ", flux: " + est.streams);
+            System.out.println("Tirages: " + est.samples + " (" + Math.round(est.samplesPerSecond) + " /s)");
+            System.out.printf("Demi-largeur max: %.4f, R-hat max: %.3f, convergé ? %b%n",
+                    est.maxHalfWidth, est.maxRhat, est.converged);
+            printProbabilities(est.probability);
+        }
     }
 
     private static void printClues(MinesweeperInstance instance) {
@@ -56,6 +90,16 @@ public class Main {
         }
     }
 
+    private static void printProbabilities(double[][] p) {
+        System.out.println("Probabilité de mine par case :");
+        for (double[] row : p) {
+            for (double v : row) {
+                System.out.printf("%.2f ", v);
+            }
+            System.out.println();
+        }
+    }
+
     private static void printMines(int[][] mines) {
         System.out.println("Une configuration de mines (1=mine, 0=pas mine) :");
         for (int r = 0; r < mines.length; r++) {
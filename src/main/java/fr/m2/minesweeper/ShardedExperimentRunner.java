@@ -0,0 +1,209 @@
+package fr.m2.minesweeper;
+
+import fr.m2.minesweeper.solver.SolverSelector.Choice;
+import fr.m2.minesweeper.util.ResultJournal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Balayage découpé en N shards, chacun dans son propre processus Java (mémoire et GC séparés,
+ * utile pour les grandes grilles où les modèles Choco sont lourds).
+ *
+ * --config f.properties : balayage (SweepConfig), sinon le balayage par défaut.
+ * --shards N            : nombre de processus (défaut 2).
+ * --fresh               : chaque shard repart de zéro.
+ * --merge               : pas de lancement, fusionne seulement les fichiers de shards existants.
+ *
+ * Chaque shard écrit son journal (ExperimentRunner.shardOutput) et son log à côté de la
+ * sortie finale ; un shard interrompu reprend donc là où il s'était arrêté.
+ * La fusion trie les lignes dans l'ordre du balayage (instance puis méthode) et n'écrit
+ * la sortie finale que si chaque job (instance, méthode) de la configuration est présent.
+ */
+public class ShardedExperimentRunner {
+
+    public static void main(String[] args) {
+        List<String> options = Arrays.asList(args);
+        String configPath = optionValue(args, "--config");
+        String shardsValue = optionValue(args, "--shards");
+        boolean fresh = options.contains("--fresh");
+
+        try {
+            SweepConfig cfg = configPath == null ? new SweepConfig() : SweepConfig.load(configPath);
+            int nbShards = shardsValue == null ? 2 : Integer.parseInt(shardsValue);
+            if (nbShards < 1) throw new IOException("--shards doit être >= 1");
+
+            if (!options.contains("--merge")) {
+                int failed = runShards(cfg, configPath, nbShards, fresh);
+                if (failed > 0) {
+                    System.err.println(failed + " shard(s) en échec (voir les logs) ; fusion des résultats partiels.");
+                }
+            }
+
+            List<String> missing = merge(cfg, nbShards);
+            if (!missing.isEmpty()) {
+                System.exit(1);
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Erreur : " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrompu.");
+            System.exit(1);
+        }
+    }
+
+    /** Lance les N shards en parallèle et attend leur fin ; renvoie le nombre de shards en échec. */
+    public static int runShards(SweepConfig cfg, String configPath, int nbShards, boolean fresh)
+            throws IOException, InterruptedException {
+
+        String javaBin = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        String classpath = currentClasspath();
+
+        new File(cfg.output).getAbsoluteFile().getParentFile().mkdirs();
+
+        List<Process> processes = new ArrayList<>();
+        for (int k = 0; k < nbShards; k++) {
+            List<String> cmd = new ArrayList<>();
+            cmd.add(javaBin);
+            for (String opt : cfg.shardJvmOptions.split("\\s+")) {
+                if (!opt.isEmpty()) cmd.add(opt);
+            }
+            cmd.add("-cp");
+            cmd.add(classpath);
+            cmd.add(ExperimentRunner.class.getName());
+            if (configPath != null) {
+                cmd.add("--config");
+                cmd.add(configPath);
+            }
+            cmd.add("--shard");
+            cmd.add(k + "/" + nbShards);
+            if (fresh) cmd.add("--fresh");
+
+            File log = new File(shardLog(cfg, k, nbShards));
+            ProcessBuilder pb = new ProcessBuilder(cmd)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.appendTo(log));
+            processes.add(pb.start());
+            System.out.println("Shard " + k + "/" + nbShards + " lancé (log : " + log.getPath() + ")");
+        }
+
+        int failed = 0;
+        for (int k = 0; k < nbShards; k++) {
+            int code = processes.get(k).waitFor();
+            System.out.println("Shard " + k + "/" + nbShards + " terminé (code " + code + ")");
+            if (code != 0) failed++;
+        }
+        return failed;
+    }
+
+    /**
+     * Fusionne les fichiers des shards dans cfg.output.
+     * Renvoie les jobs manquants (la sortie finale n'est écrite que si la liste est vide).
+     */
+    public static List<String> merge(SweepConfig cfg, int nbShards) throws IOException {
+        // clé (size,keep,seed,method,variant) -> ligne ; un job présent deux fois garde la dernière ligne lue
+        Map<String, String> rows = new LinkedHashMap<>();
+        for (int k = 0; k < nbShards; k++) {
+            File f = new File(ExperimentRunner.shardOutput(cfg, k, nbShards));
+            if (!f.exists()) {
+                System.err.println("Fichier de shard absent : " + f.getPath());
+                continue;
+            }
+            readRows(f, rows);
+        }
+
+        List<String> sorted = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        for (SweepConfig.InstanceJob job : cfg.instanceJobs()) {
+            for (Choice m : cfg.methods) {
+                String key = ResultJournal.key(job.size, job.keepProbability, job.seed, m.method, m.variant);
+                String row = rows.remove(key);
+                if (row == null) missing.add(key);
+                else sorted.add(row);
+            }
+        }
+        if (!rows.isEmpty()) {
+            System.err.println(rows.size() + " ligne(s) hors configuration ignorée(s).");
+        }
+
+        if (!missing.isEmpty()) {
+            System.err.println("Fusion incomplète : " + missing.size() + "/" + cfg.jobCount() + " jobs manquants, "
+                    + cfg.output + " non écrit. Relancer les shards pour les compléter. Premiers manquants :");
+            for (String key : missing.subList(0, Math.min(10, missing.size()))) {
+                System.err.println("  " + key);
+            }
+            return missing;
+        }
+
+        try (PrintWriter out = new PrintWriter(new FileWriter(cfg.output))) {
+            out.println(ResultJournal.HEADER);
+            for (String row : sorted) {
+                out.println(row);
+            }
+        }
+        System.out.println("Fusion : " + sorted.size() + " jobs (" + nbShards + " shards) -> " + cfg.output);
+        return missing;
+    }
+
+    private static void readRows(File f, Map<String, String> rows) throws IOException {
+        try (BufferedReader in = new BufferedReader(new FileReader(f))) {
+            String header = in.readLine();
+            if (header == null || !header.trim().equals(ResultJournal.HEADER)) {
+                throw new IOException(f + " : en-tête inattendu");
+            }
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.trim().split(",");
+                if (fields.length != 9) continue;
+                rows.put(String.join(",", Arrays.copyOf(fields, 5)), line.trim());
+            }
+        }
+    }
+
+    public static String shardLog(SweepConfig cfg, int shard, int nbShards) {
+        String csv = ExperimentRunner.shardOutput(cfg, shard, nbShards);
+        return csv.substring(0, csv.length() - 4) + ".log";
+    }
+
+    /**
+     * Classpath à transmettre aux shards. Sous mvn exec:java, les classes du projet sont
+     * chargées par un URLClassLoader dédié et java.class.path ne contient que Maven.
+     */
+    private static String currentClasspath() {
+        ClassLoader loader = ShardedExperimentRunner.class.getClassLoader();
+        if (loader instanceof URLClassLoader) {
+            List<String> entries = new ArrayList<>();
+            for (URL url : ((URLClassLoader) loader).getURLs()) {
+                try {
+                    entries.add(Paths.get(url.toURI()).toString());
+                } catch (URISyntaxException | IllegalArgumentException e) {
+                    // entrée non locale : ignorée
+                }
+            }
+            if (!entries.isEmpty()) return String.join(File.pathSeparator, entries);
+        }
+        return System.getProperty("java.class.path");
+    }
+
+    private static String optionValue(String[] args, String name) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals(name)) return args[i + 1];
+        }
+        return null;
+    }
+}
@@ -0,0 +1,245 @@
+package fr.m2.minesweeper;
+
+import fr.m2.minesweeper.model.MinesweeperInstance;
+import fr.m2.minesweeper.solver.BacktrackingMinesweeperSolver;
+import fr.m2.minesweeper.solver.BacktrackingMinesweeperSolver.Result;
+import fr.m2.minesweeper.solver.BacktrackingMinesweeperSolver.Variant;
+import fr.m2.minesweeper.solver.ZddSolutionSet;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Vérification rejouable des comptes de solutions (à relancer après toute modification
+ * du ZDD ou du backtracking) :
+ * - petites grilles aléatoires : ZDD (count, countByMines, conditionOnReveal) et les deux variantes du
+ *   backtracking contre une énumération brute, plus quelques grilles 1x1 / 1x2 aux indices
+ *   impossibles ;
+ * - instances 8x8 keep 0.70 de data/instances/ : ZDD contre les deux variantes du backtracking.
+ * Code de sortie 1 s'il y a au moins un désaccord.
+ */
+public class SolutionCountCheck {
+
+    private static final int RANDOM_BOARDS = 300;
+
+    public static void main(String[] args) {
+        int errors = 0;
+        errors += checkZddAgainstBruteForce();
+        errors += checkBacktrackingAgainstBruteForce();
+        try {
+            errors += checkZddAgainstBacktracking();
+        } catch (IOException e) {
+            System.err.println("Erreur IO : " + e.getMessage());
+            errors++;
+        }
+
+        System.out.println(errors == 0 ? "Tous les comptes concordent." : errors + " désaccord(s).");
+        if (errors > 0) System.exit(1);
+    }
+
+    /** Grilles de 3x3 à 4x5 (au plus 2^20 affectations), avec et sans nombre total de mines. */
+    private static int checkZddAgainstBruteForce() {
+        int errors = 0;
+        int reveals = 0;
+        for (int i = 0; i < RANDOM_BOARDS; i++) {
+            MinesweeperInstance inst = smallRandom(i);
+            long expected = bruteForceCount(inst, -1, -1, -1);
+            ZddSolutionSet zdd = ZddSolutionSet.compile(inst);
+            BigInteger got = zdd.count();
+            if (got.longValueExact() != expected) {
+                System.out.println("ZDD count : instance " + i + " attendu " + expected + ", obtenu " + got);
+                errors++;
+            }
+
+            // Comptes par nombre de mines (tirage par composantes de UniformSolutionSampler) :
+            // comparés à la compilation avec total_mines fixé
+            BigInteger[] byMines = zdd.countByMines();
+            for (int k = 0; k <= inst.getRows() * inst.getCols(); k++) {
+                BigInteger want = inst.getTotalMines() != null && inst.getTotalMines() != k ? BigInteger.ZERO
+                        : ZddSolutionSet.compile(new MinesweeperInstance(
+                                inst.getRows(), inst.getCols(), inst.getClues(), k)).count();
+                BigInteger have = k < byMines.length ? byMines[k] : BigInteger.ZERO;
+                if (!have.equals(want)) {
+                    System.out.println("ZDD countByMines : instance " + i + " k=" + k
+                            + " attendu " + want + ", obtenu " + have);
+                    errors++;
+                }
+            }
+
+            // Révélation d'une case sans indice, avec chacune des valeurs possibles
+            int cell = firstHiddenCell(inst);
+            if (cell < 0 || expected == 0) continue;
+            int r = cell / inst.getCols();
+            int c = cell % inst.getCols();
+            for (int clue = 0; clue <= neighbors(inst, r, c); clue++) {
+                long expectedCond = bruteForceCount(inst, r, c, clue);
+                BigInteger gotCond = zdd.conditionOnReveal(r, c, clue).count();
+                reveals++;
+                if (gotCond.longValueExact() != expectedCond) {
+                    System.out.println("ZDD conditionOnReveal : instance " + i + " (" + r + "," + c + ")=" + clue
+                            + " attendu " + expectedCond + ", obtenu " + gotCond);
+                    errors++;
+                }
+            }
+        }
+        System.out.println("ZDD / énumération brute : " + RANDOM_BOARDS + " grilles, " + reveals
+                + " révélations, " + errors + " désaccord(s)");
+        return errors;
+    }
+
+    /** Comptes complets (sans maxSolutions) : les redémarrages ne doivent ni perdre ni doubler de solution. */
+    private static int checkBacktrackingAgainstBruteForce() {
+        int errors = 0;
+        BacktrackingMinesweeperSolver bt = new BacktrackingMinesweeperSolver();
+        for (Variant variant : Variant.values()) {
+            int variantErrors = 0;
+            for (int i = 0; i < RANDOM_BOARDS; i++) {
+                MinesweeperInstance inst = smallRandom(i);
+                long expected = bruteForceCount(inst, -1, -1, -1);
+                Result res = bt.enumerate(inst, Integer.MAX_VALUE, "10s", variant);
+                if (res.timeout || res.solutionsFound != expected) {
+                    System.out.println(variant + " : instance " + i + " attendu " + expected + ", obtenu "
+                            + res.solutionsFound + (res.timeout ? " (TIMEOUT)" : ""));
+                    variantErrors++;
+                }
+            }
+            MinesweeperInstance[] degenerate = degenerateBoards();
+            for (int i = 0; i < degenerate.length; i++) {
+                long expected = bruteForceCount(degenerate[i], -1, -1, -1);
+                Result res = bt.enumerate(degenerate[i], Integer.MAX_VALUE, "10s", variant);
+                if (res.timeout || res.solutionsFound != expected) {
+                    System.out.println(variant + " : grille dégénérée " + i + " attendu " + expected + ", obtenu "
+                            + res.solutionsFound + (res.timeout ? " (TIMEOUT)" : ""));
+                    variantErrors++;
+                }
+            }
+            System.out.println(variant + " / énumération brute : " + RANDOM_BOARDS + " grilles + "
+                    + degenerate.length + " dégénérées, " + variantErrors + " désaccord(s)");
+            errors += variantErrors;
+        }
+        return errors;
+    }
+
+    private static int checkZddAgainstBacktracking() throws IOException {
+        File[] files = new File("data/instances").listFiles(
+                (dir, name) -> name.startsWith("instance_8x8_keep0.70") && name.endsWith(".json"));
+        if (files == null || files.length == 0) {
+            System.out.println("Aucune instance 8x8 keep 0.70 dans data/instances/ (lancer ExperimentRunner d'abord).");
+            return 0;
+        }
+        Arrays.sort(files);
+
+        int errors = 0;
+        BacktrackingMinesweeperSolver bt = new BacktrackingMinesweeperSolver();
+        for (File f : files) {
+            MinesweeperInstance inst = MinesweeperInstance.importFromJson(f.getPath());
+            BigInteger zdd = ZddSolutionSet.compile(inst).count();
+            for (Variant variant : Variant.values()) {
+                Result res = bt.enumerate(inst, Integer.MAX_VALUE, "60s", variant);
+                String verdict;
+                if (res.timeout) {
+                    verdict = "TIMEOUT (non vérifié)";
+                } else if (zdd.equals(BigInteger.valueOf(res.solutionsFound))) {
+                    verdict = "ok";
+                } else {
+                    verdict = "DÉSACCORD";
+                    errors++;
+                }
+                System.out.println(f.getName() + " : ZDD " + zdd + ", " + variant + " " + res.solutionsFound
+                        + " -> " + verdict);
+            }
+        }
+        return errors;
+    }
+
+    /** Indices sans voisin ou supérieurs au nombre de voisins : jamais revus par les tests incrémentaux. */
+    private static MinesweeperInstance[] degenerateBoards() {
+        return new MinesweeperInstance[]{
+                new MinesweeperInstance(1, 1, new Integer[][]{{0}}, null),
+                new MinesweeperInstance(1, 1, new Integer[][]{{5}}, null),
+                new MinesweeperInstance(1, 1, new Integer[][]{{0}}, 1),
+                new MinesweeperInstance(1, 2, new Integer[][]{{1, null}}, null),
+                new MinesweeperInstance(1, 2, new Integer[][]{{3, null}}, null),
+                new MinesweeperInstance(2, 1, new Integer[][]{{null}, {2}}, 1),
+        };
+    }
+
+    static MinesweeperInstance smallRandom(int i) {
+        int rows = 3 + i % 2;
+        int cols = 3 + i % 3;
+        long seed = 42_000L + i;
+        MinesweeperInstance inst = MinesweeperInstance.randomFullInstance(rows, cols, 0.25, seed)
+                .withRandomHiding(0.5, seed + 999);
+        // une instance sur deux sans nombre total de mines
+        if (i % 2 == 1) {
+            inst = new MinesweeperInstance(rows, cols, inst.getClues(), null);
+        }
+        return inst;
+    }
+
+    /**
+     * Nombre d'affectations qui respectent les indices (et totalMines s'il est connu), comme
+     * les modèles : les cases à indice ne sont pas forcées à 0. Si revealR >= 0, la case
+     * (revealR, revealC) doit en plus être sans mine avec revealClue mines voisines.
+     */
+    static long bruteForceCount(MinesweeperInstance inst, int revealR, int revealC, int revealClue) {
+        int rows = inst.getRows();
+        int cols = inst.getCols();
+        int n = rows * cols;
+        Integer[][] clues = inst.getClues();
+        Integer total = inst.getTotalMines();
+
+        long count = 0;
+        for (int mask = 0; mask < (1 << n); mask++) {
+            if (total != null && Integer.bitCount(mask) != total) continue;
+            boolean ok = true;
+            for (int r = 0; r < rows && ok; r++) {
+                for (int c = 0; c < cols && ok; c++) {
+                    if (clues[r][c] != null && minesAround(mask, rows, cols, r, c) != clues[r][c]) ok = false;
+                }
+            }
+            if (ok && revealR >= 0) {
+                ok = (mask & (1 << (revealR * cols + revealC))) == 0
+                        && minesAround(mask, rows, cols, revealR, revealC) == revealClue;
+            }
+            if (ok) count++;
+        }
+        return count;
+    }
+
+    private static int minesAround(int mask, int rows, int cols, int r, int c) {
+        int m = 0;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                if (dr == 0 && dc == 0) continue;
+                int rr = r + dr;
+                int cc = c + dc;
+                if (rr >= 0 && rr < rows && cc >= 0 && cc < cols && (mask & (1 << (rr * cols + cc))) != 0) m++;
+            }
+        }
+        return m;
+    }
+
+    private static int neighbors(MinesweeperInstance inst, int r, int c) {
+        int m = 0;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                if (dr == 0 && dc == 0) continue;
+                int rr = r + dr;
+                int cc = c + dc;
+                if (rr >= 0 && rr < inst.getRows() && cc >= 0 && cc < inst.getCols()) m++;
+            }
+        }
+        return m;
+    }
+
+    private static int firstHiddenCell(MinesweeperInstance inst) {
+        Integer[][] clues = inst.getClues();
+        for (int i = 0; i < inst.getRows() * inst.getCols(); i++) {
+            if (clues[i / inst.getCols()][i % inst.getCols()] == null) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,546 @@
+package fr.m2.minesweeper;
+
+import fr.m2.minesweeper.model.MinesweeperInstance;
+import fr.m2.minesweeper.solver.BacktrackingMinesweeperSolver;
+import fr.m2.minesweeper.solver.ChocoMinesweeperSolver;
+import fr.m2.minesweeper.solver.ChocoMinesweeperSolver.ExperimentResult;
+import fr.m2.minesweeper.solver.SolverSelector.Choice;
+import fr.m2.minesweeper.util.Json;
+import fr.m2.minesweeper.util.LatencyHistogram;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serveur de résolution longue durée : les solveurs (Choco et backtracking) restent chargés
+ * et compilés par le JIT, au lieu de payer un démarrage de JVM par requête.
+ *
+ * Entrée : une instance JSON par ligne (schéma de exportToJson : rows, cols, clues, total_mines),
+ * sur l'entrée standard ou sur un port local (--port, connexions sur 127.0.0.1 uniquement).
+ * Champs optionnels d'une requête :
+ *   id             renvoyé tel quel dans la réponse (sinon numéro de ligne)
+ *   method         "CHOCO/DEFAULT", "BACKTRACKING/FC_NOGOODS_LUBY", ... (défaut --method)
+ *   max_solutions  limite d'énumération (défaut --max-solutions)
+ *   time_limit_ms  budget de la requête : attente dans la file + recherche (défaut --time-limit-ms).
+ *                  La construction du modèle Choco n'est pas comptée (linéaire en taille de
+ *                  grille, elle-même bornée par MinesweeperInstance.MAX_SIDE).
+ * Une ligne {"cmd":"stats"} renvoie les statistiques au lieu d'une résolution.
+ *
+ * Sortie : une réponse JSON par ligne, dans l'ordre de fin de résolution (pas forcément
+ * l'ordre des requêtes) :
+ *   {"id":..,"status":"OK|TIMEOUT|EXPIRED|ERROR","method":..,"solutions":..,
+ *    "queue_ms":..,"solve_ms":..,"latency_ms":..}
+ * EXPIRED : le budget était épuisé avant le début de la résolution (trop d'attente).
+ *
+ * - Concurrence : --workers threads, chacun avec ses propres solveurs.
+ * - Contre-pression : file bornée (--queue) ; quand elle est pleine, la lecture des requêtes
+ *   se bloque (et TCP ralentit le client en mode socket).
+ * - Écriture : un thread d'écriture par connexion ; les workers déposent leurs réponses dans
+ *   une file bornée (MAX_QUEUED_REPLIES) sans jamais bloquer sur la socket. Si un client ne lit
+ *   plus ses réponses et que sa file déborde, sa connexion est fermée (ses réponses suivantes
+ *   sont perdues) : les autres clients ne sont pas ralentis.
+ * - Lots (--batch) : seules les écritures des réponses sont regroupées (un seul flush par
+ *   paquet) : dès que --batch réponses attendent, quand la connexion n'a plus de requête en
+ *   cours ou que la file est vide, et au plus tard après FLUSH_INTERVAL_MS sans nouvelle
+ *   réponse. Les requêtes,
+ *   elles, ne sont pas regroupées : chaque worker en prend une à la fois, pour qu'une
+ *   résolution longue ne retienne pas d'autres requêtes derrière elle.
+ * - Statistiques (histogrammes de latence, d'attente et de résolution, débit) : sur demande,
+ *   toutes les --stats-every secondes sur stderr, et à l'arrêt.
+ */
+public class SolverDaemon {
+
+    private static final int MAX_TIME_LIMIT_MS = 60_000;
+    private static final int FLUSH_INTERVAL_MS = 5;
+    private static final int MAX_QUEUED_REPLIES = 1024;   // par connexion, au-delà : client trop lent
+
+    // --- Options ---
+    private int workers = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private int queueCapacity = 0;      // 0 => 4 requêtes par worker
+    private int batchSize = 8;
+    private Choice defaultMethod = new Choice("CHOCO", "DEFAULT");
+    private int defaultMaxSolutions = 50;
+    private long defaultTimeLimitMs = 2000;
+    private int warmupBoards = 5;
+    private int statsEverySeconds = 0;
+
+    private BlockingQueue<Request> queue;
+
+    // --- Statistiques ---
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram solveTime = new LatencyHistogram();
+    private final Map<String, LongAdder> byStatus = new ConcurrentHashMap<>();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedLines = new LongAdder();
+    private final AtomicLong lastReportNanos = new AtomicLong();
+    private final AtomicLong lastReportCount = new AtomicLong();
+    private long startNanos;
+
+    /** Une requête en attente de résolution. */
+    private static class Request {
+        final Object id;
+        final MinesweeperInstance inst;
+        final Choice method;
+        final int maxSolutions;
+        final long budgetMs;
+        final long enqueuedNanos;
+        final Connection from;
+
+        Request(Object id, MinesweeperInstance inst, Choice method, int maxSolutions, long budgetMs,
+                long enqueuedNanos, Connection from) {
+            this.id = id;
+            this.inst = inst;
+            this.method = method;
+            this.maxSolutions = maxSolutions;
+            this.budgetMs = budgetMs;
+            this.enqueuedNanos = enqueuedNanos;
+            this.from = from;
+        }
+    }
+
+    /** Une réponse en attente d'écriture ; flushNow : à envoyer sans attendre la fin du paquet. */
+    private static class Reply {
+        final String line;
+        final boolean flushNow;
+
+        Reply(String line, boolean flushNow) {
+            this.line = line;
+            this.flushNow = flushNow;
+        }
+    }
+
+    /**
+     * Destination des réponses d'un client (stdout ou une socket), partagée par les workers.
+     * Seul le thread d'écriture de la connexion touche au flux de sortie.
+     */
+    private class Connection {
+        private final Writer out;
+        private final Closeable channel;     // fermé si le client ne suit plus (null : stdout)
+        private final BlockingQueue<Reply> replies = new ArrayBlockingQueue<>(MAX_QUEUED_REPLIES);
+        private final Thread writer;
+        private int pending;                 // requêtes acceptées dont la réponse n'est ni écrite ni perdue
+        private volatile boolean closed;
+
+        Connection(Writer out, Closeable channel, String name) {
+            this.out = out;
+            this.channel = channel;
+            writer = new Thread(this::writeLoop, "writer-" + name);
+            writer.setDaemon(true);
+            writer.start();
+        }
+
+        synchronized void accepted() {
+            pending++;
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+
+        /** Dépose une réponse pour le thread d'écriture ; ne bloque jamais. */
+        void answer(String line, boolean flushNow) {
+            if (closed) {
+                done();
+            } else if (!replies.offer(new Reply(line, flushNow))) {
+                System.err.println("Client trop lent (" + MAX_QUEUED_REPLIES
+                        + " réponses non lues) : connexion fermée");
+                close();
+                done();
+            }
+        }
+
+        /**
+         * Écrit les réponses dans l'ordre de dépôt ; flush quand le paquet est plein, quand une
+         * réponse le demande, quand c'est la dernière attendue, ou après FLUSH_INTERVAL_MS sans
+         * nouvelle réponse.
+         */
+        private void writeLoop() {
+            int unflushed = 0;
+            try {
+                while (!closed) {
+                    Reply reply = unflushed == 0
+                            ? replies.take()
+                            : replies.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                    if (reply != null) {
+                        out.write(reply.line);
+                        out.write('\n');
+                        unflushed++;
+                    }
+                    if (reply == null || reply.flushNow || unflushed >= batchSize || lastPending()) {
+                        out.flush();
+                        flushes.increment();
+                        flushedLines.add(unflushed);
+                        unflushed = 0;
+                    }
+                    if (reply != null) done();
+                }
+            } catch (IOException e) {
+                // client parti : les réponses restantes sont perdues, le serveur continue
+                close();
+            } catch (InterruptedException e) {
+                // arrêt
+            }
+        }
+
+        private synchronized boolean lastPending() {
+            return pending <= 1;
+        }
+
+        private synchronized void done() {
+            pending--;
+            if (pending <= 0) notifyAll();
+        }
+
+        /** Ferme le canal et arrête le thread d'écriture ; débloque aussi la lecture des requêtes. */
+        synchronized void close() {
+            if (closed) return;
+            closed = true;
+            replies.clear();
+            writer.interrupt();
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // déjà fermé
+                }
+            }
+            notifyAll();
+        }
+
+        /** Attend que toutes les réponses acceptées soient envoyées (ou la connexion fermée). */
+        synchronized void awaitIdle() throws InterruptedException {
+            while (pending > 0 && !closed) wait();
+        }
+    }
+
+    public static void main(String[] args) {
+        SolverDaemon daemon = new SolverDaemon();
+        Integer port = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String a = args[i];
+                if (i + 1 >= args.length) throw new IllegalArgumentException("valeur manquante pour " + a);
+                String v = args[++i];
+                switch (a) {
+                    case "--port": port = Integer.parseInt(v); break;
+                    case "--workers": daemon.workers = Math.max(1, Integer.parseInt(v)); break;
+                    case "--queue": daemon.queueCapacity = Math.max(1, Integer.parseInt(v)); break;
+                    case "--batch": daemon.batchSize = Math.max(1, Integer.parseInt(v)); break;
+                    case "--method": daemon.defaultMethod = parseMethod(v); break;
+                    case "--max-solutions": daemon.defaultMaxSolutions = Math.max(1, Integer.parseInt(v)); break;
+                    case "--time-limit-ms": daemon.defaultTimeLimitMs = Long.parseLong(v); break;
+                    case "--warmup": daemon.warmupBoards = Math.max(0, Integer.parseInt(v)); break;
+                    case "--stats-every": daemon.statsEverySeconds = Math.max(0, Integer.parseInt(v)); break;
+                    default: throw new IllegalArgumentException("option inconnue " + a);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Erreur : " + e.getMessage());
+            System.err.println("Options : [--port P] [--workers N] [--queue N] [--batch N] [--method M/V] "
+                    + "[--max-solutions N] [--time-limit-ms N] [--warmup N] [--stats-every S]");
+            System.exit(1);
+        }
+
+        try {
+            daemon.start();
+            if (port == null) {
+                daemon.serveStdin();
+            } else {
+                daemon.serveSocket(port);
+            }
+        } catch (IOException e) {
+            System.err.println("Erreur IO : " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Chauffe les solveurs puis démarre les workers (threads démons). */
+    public void start() throws InterruptedException {
+        if (queueCapacity <= 0) queueCapacity = 4 * workers;
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        CountDownLatch warmedUp = new CountDownLatch(workers);
+        long warmStart = System.nanoTime();
+        for (int w = 0; w < workers; w++) {
+            final int index = w;
+            Thread t = new Thread(() -> work(index, warmedUp), "solver-" + w);
+            t.setDaemon(true);
+            t.start();
+        }
+        warmedUp.await();
+
+        System.err.printf(Locale.ROOT, "Prêt : %d workers, file %d, lots de %d, chauffe %.0f ms%n",
+                workers, queueCapacity, batchSize, (System.nanoTime() - warmStart) / 1e6);
+
+        startNanos = System.nanoTime();
+        lastReportNanos.set(startNanos);
+
+        if (statsEverySeconds > 0) {
+            Thread t = new Thread(() -> {
+                try {
+                    while (true) {
+                        Thread.sleep(statsEverySeconds * 1000L);
+                        System.err.println(statsJson());
+                    }
+                } catch (InterruptedException ignored) {
+                    // arrêt
+                }
+            }, "stats");
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    /** Requêtes sur stdin, réponses sur stdout ; s'arrête quand l'entrée est fermée et tout est répondu. */
+    public void serveStdin() throws IOException, InterruptedException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        Connection conn = new Connection(
+                new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)), null, "stdout");
+        readRequests(in, conn);
+        conn.awaitIdle();
+        System.err.println(statsJson());
+    }
+
+    /** Une connexion = un thread de lecture ; les workers et la file sont partagés. */
+    public void serveSocket(int port) throws IOException {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> System.err.println(statsJson())));
+
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.err.println("Écoute sur " + server.getLocalSocketAddress());
+            while (true) {
+                Socket socket = server.accept();
+                Thread t = new Thread(() -> serveClient(socket), "client-" + socket.getPort());
+                t.setDaemon(true);
+                t.start();
+            }
+        }
+    }
+
+    private void serveClient(Socket socket) {
+        try (Socket s = socket) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+            Connection conn = new Connection(
+                    new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8)),
+                    s, String.valueOf(s.getPort()));
+            try {
+                readRequests(in, conn);
+                conn.awaitIdle();
+            } finally {
+                conn.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Connexion fermée : " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void readRequests(BufferedReader in, Connection conn) throws IOException, InterruptedException {
+        long lineNo = 0;
+        String line;
+        while (!conn.isClosed() && (line = in.readLine()) != null) {
+            lineNo++;
+            if (line.trim().isEmpty()) continue;
+            long now = System.nanoTime();
+
+            Object id = lineNo;
+            try {
+                Map<String, Object> json = Json.parseObject(line);
+                if (json.containsKey("id")) id = json.get("id");
+
+                if ("stats".equals(json.get("cmd"))) {
+                    conn.accepted();
+                    conn.answer(statsJson(), true);
+                    continue;
+                }
+
+                MinesweeperInstance inst = MinesweeperInstance.fromJson(json);
+                Choice method = json.containsKey("method") ? parseMethod(String.valueOf(json.get("method"))) : defaultMethod;
+                int maxSolutions = json.containsKey("max_solutions")
+                        ? Math.max(1, ((Number) json.get("max_solutions")).intValue()) : defaultMaxSolutions;
+                long budgetMs = json.containsKey("time_limit_ms")
+                        ? ((Number) json.get("time_limit_ms")).longValue() : defaultTimeLimitMs;
+                budgetMs = Math.min(budgetMs, MAX_TIME_LIMIT_MS);
+
+                conn.accepted();
+                // bloque si la file est pleine : contre-pression vers le client
+                queue.put(new Request(id, inst, method, maxSolutions, budgetMs, now, conn));
+
+            } catch (RuntimeException e) {
+                // requête invalide, quelle que soit l'erreur : réponse ERROR, le serveur continue
+                conn.accepted();
+                count("ERROR");
+                String msg = e instanceof IllegalArgumentException ? e.getMessage() : e.toString();
+                conn.answer("{\"id\":" + idJson(id) + ",\"status\":\"ERROR\",\"error\":"
+                        + Json.quote(String.valueOf(msg)) + "}", true);
+            }
+        }
+    }
+
+    private void work(int index, CountDownLatch warmedUp) {
+        ChocoMinesweeperSolver choco = new ChocoMinesweeperSolver();
+        BacktrackingMinesweeperSolver bt = new BacktrackingMinesweeperSolver();
+
+        try {
+            warmUp(index, choco, bt);
+        } finally {
+            warmedUp.countDown();
+        }
+
+        while (true) {
+            Request req;
+            try {
+                req = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            String reply = handle(req, choco, bt);
+            // file vide : personne ne viendra compléter le paquet, on envoie tout de suite
+            req.from.answer(reply, queue.isEmpty());
+        }
+    }
+
+    /** Quelques grilles aléatoires par méthode : chargement des classes Choco et JIT avant les vraies requêtes. */
+    private void warmUp(int index, ChocoMinesweeperSolver choco, BacktrackingMinesweeperSolver bt) {
+        for (int i = 0; i < warmupBoards; i++) {
+            long seed = 7_000_000L + 1000L * index + i;
+            int size = (i % 2 == 0) ? 8 : 12;
+            MinesweeperInstance inst = MinesweeperInstance.randomFullInstance(size, size, 0.18, seed)
+                    .withRandomHiding(0.5, seed + 999);
+            choco.enumerateForExperiment(inst, 5, ChocoMinesweeperSolver.Strategy.DEFAULT, "200ms");
+            bt.enumerate(inst, 5, "200ms", BacktrackingMinesweeperSolver.Variant.values()[i % 2]);
+        }
+    }
+
+    private String handle(Request req, ChocoMinesweeperSolver choco, BacktrackingMinesweeperSolver bt) {
+        long beginNanos = System.nanoTime();
+        long waitedNanos = beginNanos - req.enqueuedNanos;
+        long remainingMs = req.budgetMs - waitedNanos / 1_000_000L;
+
+        String status;
+        int solutions = 0;
+        String error = null;
+
+        if (remainingMs <= 0) {
+            status = "EXPIRED";
+        } else {
+            String timeLimit = remainingMs + "ms";
+            try {
+                boolean timeout;
+                if (req.method.method.equals("CHOCO")) {
+                    ExperimentResult res = choco.enumerateForExperiment(
+                            req.inst, req.maxSolutions, req.method.strategy(), timeLimit);
+                    solutions = res.numberOfSolutions;
+                    timeout = res.timeoutReached;
+                } else {
+                    BacktrackingMinesweeperSolver.Result res =
+                            bt.enumerate(req.inst, req.maxSolutions, timeLimit, req.method.backtrackingVariant());
+                    solutions = res.solutionsFound;
+                    timeout = res.timeout;
+                }
+                status = timeout ? "TIMEOUT" : "OK";
+            } catch (RuntimeException e) {
+                status = "ERROR";
+                error = e.toString();
+            }
+        }
+
+        long endNanos = System.nanoTime();
+        long solveNanos = endNanos - beginNanos;
+        long totalNanos = endNanos - req.enqueuedNanos;
+
+        queueWait.recordNanos(waitedNanos);
+        solveTime.recordNanos(solveNanos);
+        latency.recordNanos(totalNanos);
+        count(status);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"id\":").append(idJson(req.id))
+                .append(",\"status\":\"").append(status).append('"')
+                .append(",\"method\":").append(Json.quote(req.method.label()))
+                .append(",\"solutions\":").append(solutions)
+                .append(String.format(Locale.ROOT, ",\"queue_ms\":%.3f,\"solve_ms\":%.3f,\"latency_ms\":%.3f",
+                        waitedNanos / 1e6, solveNanos / 1e6, totalNanos / 1e6));
+        if (error != null) sb.append(",\"error\":").append(Json.quote(error));
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Statistiques depuis le démarrage (hors chauffe). throughput_rps : moyenne depuis le démarrage ;
+     * recent_rps : depuis le rapport précédent ; avg_batch : réponses envoyées par flush.
+     */
+    public String statsJson() {
+        long now = System.nanoTime();
+        long done = latency.count();
+        double uptime = (now - startNanos) / 1e9;
+
+        long prevNanos = lastReportNanos.getAndSet(now);
+        long prevCount = lastReportCount.getAndSet(done);
+        double window = (now - prevNanos) / 1e9;
+        double recent = window > 0 ? (done - prevCount) / window : 0;
+
+        long nbFlushes = flushes.sum();
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT,
+                "{\"stats\":{\"uptime_s\":%.1f,\"completed\":%d,\"throughput_rps\":%.2f,\"recent_rps\":%.2f,"
+                        + "\"queued\":%d,\"workers\":%d,\"avg_batch\":%.2f,\"status\":{",
+                uptime, done, uptime > 0 ? done / uptime : 0, recent,
+                queue == null ? 0 : queue.size(), workers, nbFlushes == 0 ? 0 : (double) flushedLines.sum() / nbFlushes));
+        boolean first = true;
+        for (Map.Entry<String, LongAdder> e : new TreeMap<>(byStatus).entrySet()) {
+            if (!first) sb.append(',');
+            first = false;
+            sb.append(Json.quote(e.getKey())).append(':').append(e.getValue().sum());
+        }
+        sb.append("},\"latency_ms\":").append(latency.toJson())
+                .append(",\"queue_ms\":").append(queueWait.toJson())
+                .append(",\"solve_ms\":").append(solveTime.toJson())
+                .append("}}");
+        return sb.toString();
+    }
+
+    private void count(String status) {
+        byStatus.computeIfAbsent(status, s -> new LongAdder()).increment();
+    }
+
+    private static Choice parseMethod(String label) {
+        if (label == null || label.indexOf('/') < 0) {
+            throw new IllegalArgumentException("méthode attendue sous la forme METHODE/VARIANTE : " + label);
+        }
+        Choice m = Choice.fromLabel(label);
+        // lève IllegalArgumentException si la stratégie / variante n'existe pas
+        if (m.strategy() == null && m.backtrackingVariant() == null) {
+            throw new IllegalArgumentException("méthode inconnue " + label);
+        }
+        return m;
+    }
+
+    private static String idJson(Object id) {
+        if (id == null) return "null";
+        if (id instanceof Number || id instanceof Boolean) return id.toString();
+        return Json.quote(id.toString());
+    }
+}
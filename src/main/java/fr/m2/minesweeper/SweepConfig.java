@@ -0,0 +1,155 @@
+package fr.m2.minesweeper;
+
+import fr.m2.minesweeper.solver.SolverSelector.Choice;
+import fr.m2.minesweeper.util.TimeLimits;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Description d'un balayage d'expériences (fichier .properties), par exemple :
+ *
+ *   sizes=8,12
+ *   keepProbabilities=0.3,0.5,0.7
+ *   seeds=5              (graines seedStart .. seedStart + seeds - 1)
+ *   seedStart=1000
+ *   mineProbability=0.18
+ *   maxSolutions=50
+ *   timeLimit=2s         (2000 = 2000ms ; format invalide => erreur au chargement)
+ *   methods=CHOCO/DEFAULT,CHOCO/WDEG_MINE_FIRST,BACKTRACKING/FC_BOUNDS,BACKTRACKING/FC_NOGOODS_LUBY
+ *   output=data/results/results_complete.csv
+ *   shardJvmOptions=-Xmx2g   (options des JVM lancées par ShardedExperimentRunner)
+ *
+ * Les clés absentes prennent les valeurs par défaut ci-dessus (le balayage historique).
+ *
+ * Un job = (instance, méthode). Le découpage en shards se fait par instance
+ * (index dans l'ordre size, keep, seed modulo le nombre de shards) : chaque instance n'est
+ * générée que par un seul processus, et le découpage ne dépend que de la configuration.
+ */
+public class SweepConfig {
+
+    /** Une instance du balayage (toutes les méthodes sont lancées dessus). */
+    public static class InstanceJob {
+        public final int size;
+        public final double keepProbability;
+        public final long seed;
+
+        public InstanceJob(int size, double keepProbability, long seed) {
+            this.size = size;
+            this.keepProbability = keepProbability;
+            this.seed = seed;
+        }
+
+        public String instanceFile() {
+            return String.format(Locale.ROOT, "instance_%dx%d_keep%.2f_seed%d.json",
+                    size, size, keepProbability, seed);
+        }
+    }
+
+    public int[] sizes = {8, 12};
+    public double[] keepProbabilities = {0.3, 0.5, 0.7};
+    public int seeds = 5;
+    public long seedStart = 1000L;
+    public double mineProbability = 0.18;
+    public int maxSolutions = 50;
+    public String timeLimit = "2s";
+    public List<Choice> methods = defaultMethods();
+    public String output = "data/results/results_complete.csv";
+    public String shardJvmOptions = "";
+
+    private static List<Choice> defaultMethods() {
+        List<Choice> methods = new ArrayList<>();
+        methods.add(new Choice("CHOCO", "DEFAULT"));
+        methods.add(new Choice("CHOCO", "WDEG_MINE_FIRST"));
+        methods.add(new Choice("BACKTRACKING", "FC_BOUNDS"));
+        methods.add(new Choice("BACKTRACKING", "FC_NOGOODS_LUBY"));
+        return methods;
+    }
+
+    public static SweepConfig load(String path) throws IOException {
+        Properties p = new Properties();
+        try (Reader in = new FileReader(path)) {
+            p.load(in);
+        }
+
+        SweepConfig cfg = new SweepConfig();
+        try {
+            if (p.containsKey("sizes")) cfg.sizes = parseInts(p.getProperty("sizes"));
+            if (p.containsKey("keepProbabilities")) cfg.keepProbabilities = parseDoubles(p.getProperty("keepProbabilities"));
+            if (p.containsKey("seeds")) cfg.seeds = Integer.parseInt(p.getProperty("seeds").trim());
+            if (p.containsKey("seedStart")) cfg.seedStart = Long.parseLong(p.getProperty("seedStart").trim());
+            if (p.containsKey("mineProbability")) cfg.mineProbability = Double.parseDouble(p.getProperty("mineProbability").trim());
+            if (p.containsKey("maxSolutions")) cfg.maxSolutions = Integer.parseInt(p.getProperty("maxSolutions").trim());
+            cfg.timeLimit = p.getProperty("timeLimit", cfg.timeLimit).trim();
+            TimeLimits.toMillis(cfg.timeLimit);   // format vérifié dès le chargement
+            cfg.output = p.getProperty("output", cfg.output).trim();
+            cfg.shardJvmOptions = p.getProperty("shardJvmOptions", cfg.shardJvmOptions).trim();
+
+            if (p.containsKey("methods")) {
+                cfg.methods = new ArrayList<>();
+                for (String label : split(p.getProperty("methods"))) {
+                    Choice m = Choice.fromLabel(label);
+                    // valide le nom de stratégie / variante dès le chargement
+                    if (m.strategy() == null && m.backtrackingVariant() == null) {
+                        throw new IllegalArgumentException("méthode inconnue '" + label + "'");
+                    }
+                    cfg.methods.add(m);
+                }
+            }
+        } catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+            throw new IOException(path + " : configuration invalide (" + e.getMessage() + ")", e);
+        }
+        if (cfg.sizes.length == 0 || cfg.keepProbabilities.length == 0 || cfg.seeds <= 0 || cfg.methods.isEmpty()) {
+            throw new IOException(path + " : balayage vide");
+        }
+        return cfg;
+    }
+
+    /** Toutes les instances du balayage, dans l'ordre size, keep, seed. */
+    public List<InstanceJob> instanceJobs() {
+        List<InstanceJob> jobs = new ArrayList<>();
+        for (int size : sizes) {
+            for (double keep : keepProbabilities) {
+                for (int s = 0; s < seeds; s++) {
+                    jobs.add(new InstanceJob(size, keep, seedStart + s));
+                }
+            }
+        }
+        return jobs;
+    }
+
+    /** Instances du shard numéro shard (0 <= shard < nbShards). */
+    public List<InstanceJob> instanceJobs(int shard, int nbShards) {
+        List<InstanceJob> all = instanceJobs();
+        List<InstanceJob> mine = new ArrayList<>();
+        for (int i = shard; i < all.size(); i += nbShards) {
+            mine.add(all.get(i));
+        }
+        return mine;
+    }
+
+    public int jobCount() {
+        return sizes.length * keepProbabilities.length * seeds * methods.size();
+    }
+
+    private static List<String> split(String list) {
+        List<String> parts = new ArrayList<>();
+        for (String s : list.split(",")) {
+            if (!s.trim().isEmpty()) parts.add(s.trim());
+        }
+        return parts;
+    }
+
+    private static int[] parseInts(String list) {
+        return split(list).stream().mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static double[] parseDoubles(String list) {
+        return split(list).stream().mapToDouble(Double::parseDouble).toArray();
+    }
+}
@@ -0,0 +1,109 @@
+package fr.m2.minesweeper.model;
+
+/**
+ * Caractéristiques peu coûteuses d'une instance (calcul linéaire en nombre de cases),
+ * utilisées pour choisir un solveur avant de lancer la résolution.
+ * - frontierSize : cases sans indice voisines d'au moins un indice.
+ * - clueDensity : proportion de cases révélées.
+ * - components : composantes connexes de la frontière (deux cases sont liées si elles
+ *   partagent un indice).
+ * - mineRatio : totalMines / cases sans indice (-1 si totalMines inconnu).
+ */
+public class InstanceFeatures {
+
+    public static final String[] NAMES = {
+            "cells", "clueDensity", "frontierSize", "frontierRatio", "components", "mineRatio"
+    };
+
+    public final int cells;
+    public final double clueDensity;
+    public final int frontierSize;
+    public final double frontierRatio;
+    public final int components;
+    public final double mineRatio;
+
+    public InstanceFeatures(int cells, double clueDensity, int frontierSize, double frontierRatio,
+                            int components, double mineRatio) {
+        this.cells = cells;
+        this.clueDensity = clueDensity;
+        this.frontierSize = frontierSize;
+        this.frontierRatio = frontierRatio;
+        this.components = components;
+        this.mineRatio = mineRatio;
+    }
+
+    /** Valeurs dans l'ordre de NAMES. */
+    public double[] toArray() {
+        return new double[]{cells, clueDensity, frontierSize, frontierRatio, components, mineRatio};
+    }
+
+    public static InstanceFeatures of(MinesweeperInstance inst) {
+        int rows = inst.getRows();
+        int cols = inst.getCols();
+        int n = rows * cols;
+        Integer[][] clues = inst.getClues();
+
+        int clueCount = 0;
+        boolean[] frontier = new boolean[n];
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (clues[r][c] == null) continue;
+                clueCount++;
+
+                // toutes les cases inconnues autour d'un même indice sont dans la même composante
+                int first = -1;
+                for (int dr = -1; dr <= 1; dr++) {
+                    for (int dc = -1; dc <= 1; dc++) {
+                        if (dr == 0 && dc == 0) continue;
+                        int rr = r + dr;
+                        int cc = c + dc;
+                        if (rr < 0 || rr >= rows || cc < 0 || cc >= cols) continue;
+                        if (clues[rr][cc] != null) continue;
+                        int i = rr * cols + cc;
+                        frontier[i] = true;
+                        if (first < 0) first = i;
+                        else union(parent, first, i);
+                    }
+                }
+            }
+        }
+
+        int frontierSize = 0;
+        int components = 0;
+        for (int i = 0; i < n; i++) {
+            if (!frontier[i]) continue;
+            frontierSize++;
+            if (find(parent, i) == i) components++;
+        }
+
+        int unknown = n - clueCount;
+        Integer totalMines = inst.getTotalMines();
+        double mineRatio = (totalMines == null || unknown == 0) ? -1 : (double) totalMines / unknown;
+
+        return new InstanceFeatures(
+                n,
+                (double) clueCount / n,
+                frontierSize,
+                unknown == 0 ? 0 : (double) frontierSize / unknown,
+                components,
+                mineRatio
+        );
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int ra = find(parent, a);
+        int rb = find(parent, b);
+        if (ra != rb) parent[ra] = rb;
+    }
+}
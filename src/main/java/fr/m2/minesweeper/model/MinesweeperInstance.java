@@ -1,8 +1,15 @@
 package fr.m2.minesweeper.model;
 
+import fr.m2.minesweeper.util.Json;
+
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 /**
  * Représente une instance de Démineur.
@@ -12,6 +19,8 @@ import java.io.IOException;
  */
 public class MinesweeperInstance {
 
+    public static final int MAX_SIDE = 1000;   // rows / cols maximal accepté par fromJson
+
     public int rows;
     public int cols;
     public Integer[][] clues;   // null si pas de chiffre connu
@@ -154,4 +163,57 @@ public class MinesweeperInstance {
         fw.write("}\n");
         fw.close();
     }
+
+    /**
+     * Relit une instance écrite par exportToJson.
+     */
+    public static MinesweeperInstance importFromJson(String filename) throws IOException {
+        String text = new String(Files.readAllBytes(Paths.get(filename)), StandardCharsets.UTF_8);
+        try {
+            return fromJson(Json.parseObject(text));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(filename + " : " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Construit une instance depuis un objet JSON déjà lu (même schéma que exportToJson :
+     * rows, cols, clues, total_mines). Les autres champs sont ignorés.
+     * rows et cols sont vérifiés (1..MAX_SIDE) avant toute allocation ; indices dans 0..8,
+     * total_mines dans 0..rows*cols. Un nombre non entier (1.7, 2.0) est refusé, pas tronqué.
+     */
+    public static MinesweeperInstance fromJson(Map<String, Object> json) {
+        int rows = toInt(json.get("rows"), "rows", 1, MAX_SIDE);
+        int cols = toInt(json.get("cols"), "cols", 1, MAX_SIDE);
+
+        Object cluesObj = json.get("clues");
+        if (!(cluesObj instanceof List) || ((List<?>) cluesObj).size() != rows) {
+            throw new IllegalArgumentException("clues : " + rows + " lignes attendues");
+        }
+
+        Integer[][] clues = new Integer[rows][cols];
+        for (int r = 0; r < rows; r++) {
+            Object rowObj = ((List<?>) cluesObj).get(r);
+            if (!(rowObj instanceof List) || ((List<?>) rowObj).size() != cols) {
+                throw new IllegalArgumentException("clues[" + r + "] : " + cols + " colonnes attendues");
+            }
+            List<?> row = (List<?>) rowObj;
+            for (int c = 0; c < cols; c++) {
+                Object v = row.get(c);
+                clues[r][c] = v == null ? null : toInt(v, "clues[" + r + "][" + c + "]", 0, 8);
+            }
+        }
+
+        Object tm = json.get("total_mines");
+        Integer totalMines = tm == null ? null : toInt(tm, "total_mines", 0, rows * cols);
+        return new MinesweeperInstance(rows, cols, clues, totalMines);
+    }
+
+    /** Json rend les entiers en Long et les autres nombres en Double : seuls les Long sont acceptés. */
+    private static int toInt(Object v, String field, int min, int max) {
+        if (!(v instanceof Long) || (Long) v < min || (Long) v > max) {
+            throw new IllegalArgumentException(field + " : entier entre " + min + " et " + max + " attendu");
+        }
+        return ((Long) v).intValue();
+    }
 }
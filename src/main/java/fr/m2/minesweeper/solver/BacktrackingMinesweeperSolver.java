@@ -1,26 +1,57 @@
 package fr.m2.minesweeper.solver;
 
 import fr.m2.minesweeper.model.MinesweeperInstance;
+import fr.m2.minesweeper.util.TimeLimits;
 
 import java.util.*;
 
 /**
  * Solveur COMPLET (backtracking) avec propagation par bornes (forward-checking):
+ * - FC_BOUNDS : ordre statique (degré), valeurs 1 puis 0, retour arrière chronologique.
+ * - FC_NOGOODS_LUBY : même filtrage, mais ordre dynamique guidé par les conflits,
+ *   ensembles de conflits (backjumping) qui donnent des nogoods réutilisés dans tout
+ *   l'arbre, et redémarrages selon la suite de Luby. Chaque nogood surveille deux de ses
+ *   affectations (littéraux surveillés) ; les moins actifs sont supprimés périodiquement.
  */
 public class BacktrackingMinesweeperSolver {
 
+    public enum Variant {
+        FC_BOUNDS,         // chronologique, ordre par degré
+        FC_NOGOODS_LUBY    // conflits + nogoods + redémarrages
+    }
+
     public static class Result {
         public final int solutionsFound;
         public final long timeMs;
         public final boolean timeout;
+        public final long nodes;
 
         public Result(int solutionsFound, long timeMs, boolean timeout) {
+            this(solutionsFound, timeMs, timeout, 0);
+        }
+
+        public Result(int solutionsFound, long timeMs, boolean timeout, long nodes) {
             this.solutionsFound = solutionsFound;
             this.timeMs = timeMs;
             this.timeout = timeout;
+            this.nodes = nodes;
         }
     }
 
+    // Paramètres du mode FC_NOGOODS_LUBY
+    private static final int LUBY_UNIT = 128;            // échecs par unité de la suite de Luby
+    private static final int MAX_NOGOOD_SIZE = 16;      // nogoods plus longs : non mémorisés
+    private static final int FIRST_NOGOOD_LIMIT = 2000; // au-delà : suppression de la moitié des moins actifs
+    private static final double NOGOOD_LIMIT_GROWTH = 1.1;  // par redémarrage
+    private static final double ACTIVITY_DECAY = 0.95;
+    private static final double NOGOOD_DECAY = 0.999;
+
+    // Statuts de recherche (mode FC_NOGOODS_LUBY)
+    private static final int EXHAUSTED = 0;   // sous-arbre entièrement exploré
+    private static final int TIMEOUT = 1;
+    private static final int LIMIT = 2;       // maxSolutions atteint
+    private static final int RESTART = 3;
+
     private MinesweeperInstance inst;
     private int rows, cols;
     private Integer[][] clues;
@@ -37,7 +68,44 @@ public class BacktrackingMinesweeperSolver {
     // For heuristic: precompute "degree" of each cell = how many clue-constraints it appears in
     private int[][] degree;
 
+    private long nodes;
+
+    // --- Mode FC_NOGOODS_LUBY ---
+    private double[] activity;            // activité de conflit par case (index r * cols + c)
+    private double activityInc;
+    private List<Nogood> nogoods;         // nogoods appris encore conservés
+    private Nogood[][] watches;           // par littéral (case * 2 + valeur) : nogoods qui le surveillent
+    private int[][] blockers;             // un autre littéral de chaque nogood surveillant (même position)
+    private int[] watchCount;
+    private int[] value;                  // copie de assign à plat (index r * cols + c), lue par les littéraux
+    private int[] depth;                  // rang d'affectation de chaque case sur le chemin courant
+    private double nogoodInc;
+    private int nogoodLimit;
+    private BitSet lastConflict;          // conflit du dernier sous-arbre échoué (null = non exploitable)
+    private long failures;
+    private long cutoff;
+    private int restarts;
+
+    /**
+     * Affectations interdites ensemble, en littéraux case * 2 + valeur (vrai si la case a cette
+     * valeur, faux si elle a l'autre). Violé quand tous ses littéraux sont vrais ; lits[0] et
+     * lits[1] sont les littéraux surveillés (voir updateWatches).
+     */
+    private static final class Nogood {
+        final int[] lits;
+        double activity;
+
+        Nogood(int[] lits, double activity) {
+            this.lits = lits;
+            this.activity = activity;
+        }
+    }
+
     public Result enumerate(MinesweeperInstance inst, int maxSolutions, String timeLimit) {
+        return enumerate(inst, maxSolutions, timeLimit, Variant.FC_BOUNDS);
+    }
+
+    public Result enumerate(MinesweeperInstance inst, int maxSolutions, String timeLimit, Variant variant) {
         this.inst = inst;
         this.rows = inst.getRows();
         this.cols = inst.getCols();
@@ -54,33 +122,16 @@ public class BacktrackingMinesweeperSolver {
         this.solutions = 0;
 
         long start = System.currentTimeMillis();
-        this.deadlineMs = computeDeadline(start, timeLimit);
+        this.deadlineMs = TimeLimits.deadline(start, timeLimit);
 
         buildDegrees();
+        this.nodes = 0;
 
-        boolean timeout = backtrack();
+        boolean timeout = cluesSatisfiable()
+                && (variant == Variant.FC_NOGOODS_LUBY ? searchWithRestarts() : backtrack());
 
         long end = System.currentTimeMillis();
-        return new Result(solutions, end - start, timeout);
-    }
-
-    private long computeDeadline(long startMs, String timeLimit) {
-        if (timeLimit == null || timeLimit.isBlank()) return 0;
-        String s = timeLimit.trim().toLowerCase(Locale.ROOT);
-
-        // formats: "2000ms", "2s"
-        try {
-            if (s.endsWith("ms")) {
-                long ms = Long.parseLong(s.substring(0, s.length() - 2));
-                return startMs + ms;
-            }
-            if (s.endsWith("s")) {
-                long sec = Long.parseLong(s.substring(0, s.length() - 1));
-                return startMs + sec * 1000L;
-            }
-        } catch (Exception ignored) {}
-        // fallback: no deadline
-        return 0;
+        return new Result(solutions, end - start, timeout, nodes);
     }
 
     private void buildDegrees() {
@@ -96,8 +147,24 @@ public class BacktrackingMinesweeperSolver {
         }
     }
 
+    /**
+     * Les tests incrémentaux ne revoient un indice que lorsqu'un de ses voisins est affecté :
+     * un indice hors de [0, nombre de voisins] (indice sans voisin d'une grille 1x1 par exemple)
+     * n'y serait jamais refusé. Vérifié ici une fois, avant la recherche.
+     */
+    private boolean cluesSatisfiable() {
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                Integer clue = clues[r][c];
+                if (clue != null && (clue < 0 || clue > neighbors(r, c).size())) return false;
+            }
+        }
+        return true;
+    }
+
     private boolean backtrack() {
-        
+        nodes++;
+
         if (deadlineMs != 0 && System.currentTimeMillis() > deadlineMs) return true; // timeout
         if (maxSolutions > 0 && solutions >= maxSolutions) return false;
 
@@ -153,42 +220,31 @@ public class BacktrackingMinesweeperSolver {
     }
 
     /**
-     * Check all clue constraints affected: for each revealed clue cell,
+     * Seuls les indices voisins de (rr, cc) peuvent devenir faux : même test que checkAfterAssign
+     * (mode FC_NOGOODS_LUBY), pour que les deux variantes ne diffèrent que par la recherche.
+     * Les indices sans voisin sont traités par cluesSatisfiable.
      */
     private boolean isConsistentAfterAssign(int rr, int cc) {
-        
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                Integer clue = clues[r][c];
-                if (clue == null) continue;
-
-                int assignedSum = 0;
-                int unassigned = 0;
+        for (int[] clueCell : neighbors(rr, cc)) {
+            Integer clue = clues[clueCell[0]][clueCell[1]];
+            if (clue == null) continue;
 
-                for (int[] nb : neighbors(r, c)) {
-                    int v = assign[nb[0]][nb[1]];
-                    if (v == -1) unassigned++;
-                    else assignedSum += v;
-                }
-
-                // lower bound
-                if (assignedSum > clue) return false;
-                // upper bound
-                if (assignedSum + unassigned < clue) return false;
+            int assignedSum = 0;
+            int unassigned = 0;
 
-            
+            for (int[] nb : neighbors(clueCell[0], clueCell[1])) {
+                int v = assign[nb[0]][nb[1]];
+                if (v == -1) unassigned++;
+                else assignedSum += v;
             }
-        }
 
-    
-        if (totalMines != null) {
-            int remaining = rows * cols - assignedCount;
-            int minPossible = assignedMines;
-            int maxPossible = assignedMines + remaining;
-            if (!(minPossible <= totalMines && totalMines <= maxPossible)) return false;
+            // lower bound
+            if (assignedSum > clue) return false;
+            // upper bound
+            if (assignedSum + unassigned < clue) return false;
         }
 
-        return true;
+        return globalBoundsOk();
     }
 
     private int[] selectUnassignedCell() {
@@ -212,6 +268,365 @@ public class BacktrackingMinesweeperSolver {
         return new int[]{bestR, bestC};
     }
 
+    // ------------------------------------------------------------------
+    // Mode FC_NOGOODS_LUBY
+    // ------------------------------------------------------------------
+
+    /**
+     * Boucle de redémarrages : la k-ième descente s'arrête après LUBY_UNIT * luby(k) échecs.
+     * Nogoods et activités sont conservés d'une descente à l'autre ; la limite grandit sans
+     * borne, donc la recherche reste complète. Après la première solution, la descente en cours
+     * va jusqu'au bout (plus de redémarrage) : chaque solution n'est donc comptée qu'une fois.
+     */
+    private boolean searchWithRestarts() {
+        int n = rows * cols;
+        activity = new double[n];
+        activityInc = 1.0;
+        nogoods = new ArrayList<>();
+        watches = new Nogood[2 * n][];
+        blockers = new int[2 * n][];
+        for (int l = 0; l < 2 * n; l++) {
+            watches[l] = new Nogood[4];
+            blockers[l] = new int[4];
+        }
+        watchCount = new int[2 * n];
+        value = new int[n];
+        Arrays.fill(value, -1);
+        depth = new int[n];
+        nogoodInc = 1.0;
+        nogoodLimit = FIRST_NOGOOD_LIMIT;
+        restarts = 0;
+
+        while (true) {
+            restarts++;
+            failures = 0;
+            cutoff = (long) LUBY_UNIT * luby(restarts);
+
+            int status = search();
+            if (status != RESTART) return status == TIMEOUT;
+            nogoodLimit = (int) (nogoodLimit * NOGOOD_LIMIT_GROWTH);
+        }
+    }
+
+    /** Suite de Luby : 1 1 2 1 1 2 4 1 1 2 1 1 2 4 8 ... (i >= 1). */
+    static long luby(int i) {
+        int k = 1;
+        while ((1L << k) - 1 < i) k++;
+        while (i != (1L << k) - 1) {
+            i -= (int) ((1L << (k - 1)) - 1);
+            k = 1;
+            while ((1L << k) - 1 < i) k++;
+        }
+        return 1L << (k - 1);
+    }
+
+    /**
+     * Descente avec ensembles de conflits. Si le sous-arbre échoue sans solution, lastConflict
+     * contient les cases (au-dessus de ce noeud) qui expliquent l'échec : leur affectation
+     * courante est un nogood, mémorisé puis vérifié à chaque affectation.
+     */
+    private int search() {
+        nodes++;
+
+        if (deadlineMs != 0 && System.currentTimeMillis() > deadlineMs) return TIMEOUT;
+        if (maxSolutions > 0 && solutions >= maxSolutions) return LIMIT;
+
+        if (assignedCount == rows * cols) {
+            if (totalMines == null || assignedMines == totalMines) {
+                // dès qu'on trouve des solutions, plus de redémarrage : sinon chaque descente
+                // ré-énumère les sous-arbres à solutions, où aucun nogood n'est appris
+                solutions++;
+                cutoff = Long.MAX_VALUE;
+            }
+            lastConflict = null;
+            return EXHAUSTED;
+        }
+
+        int cell = selectByActivity();
+        int r = cell / cols, c = cell % cols;
+
+        BitSet conflict = new BitSet();
+        boolean learnable = true;    // faux dès qu'un sous-arbre contient une solution
+
+        for (int val : new int[]{1, 0}) {
+            assign[r][c] = val;
+            assignedCount++;
+            assignedMines += val;
+            value[cell] = val;
+            depth[cell] = assignedCount;
+
+            BitSet conf = checkAfterAssign(r, c);
+            if (conf == null && !globalBoundsOk()) {
+                // trop de mines => les mines posées ; plus assez de cases => les cases vides
+                conf = assignedWith(assignedMines > totalMines ? 1 : 0);
+            }
+
+            if (conf == null) {
+                int status = search();
+                if (status != EXHAUSTED) {
+                    undo(r, c, val);
+                    return status;
+                }
+                conf = lastConflict;
+            } else {
+                failures++;
+                bump(conf);
+            }
+
+            undo(r, c, val);
+
+            if (conf == null) {
+                learnable = false;
+            } else if (!conf.get(cell) && learnable) {
+                // l'échec ne dépend pas de cette case : inutile d'essayer l'autre valeur
+                lastConflict = conf;
+                return failures >= cutoff ? RESTART : EXHAUSTED;
+            } else {
+                conflict.or(conf);
+            }
+
+            if (failures >= cutoff) return RESTART;
+            if (maxSolutions > 0 && solutions >= maxSolutions) return LIMIT;
+        }
+
+        conflict.clear(cell);
+        if (learnable) {
+            recordNogood(conflict);
+            lastConflict = conflict;
+        } else {
+            lastConflict = null;
+        }
+        return EXHAUSTED;
+    }
+
+    private BitSet assignedWith(int value) {
+        BitSet cells = new BitSet();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (assign[r][c] == value) cells.set(r * cols + c);
+            }
+        }
+        return cells;
+    }
+
+    private void undo(int r, int c, int val) {
+        assignedMines -= val;
+        assignedCount--;
+        assign[r][c] = -1;
+        value[r * cols + c] = -1;
+    }
+
+    private boolean globalBoundsOk() {
+        if (totalMines == null) return true;
+        int remaining = rows * cols - assignedCount;
+        return assignedMines <= totalMines && totalMines <= assignedMines + remaining;
+    }
+
+    /**
+     * Seuls les indices voisins de (rr, cc) et les nogoods qui surveillent la nouvelle affectation
+     * peuvent devenir faux. Renvoie null si tout est cohérent, sinon les cases affectées qui
+     * expliquent l'échec.
+     */
+    private BitSet checkAfterAssign(int rr, int cc) {
+        for (int[] clueCell : neighbors(rr, cc)) {
+            Integer clue = clues[clueCell[0]][clueCell[1]];
+            if (clue == null) continue;
+
+            int assignedSum = 0;
+            int unassigned = 0;
+            for (int[] nb : neighbors(clueCell[0], clueCell[1])) {
+                int v = assign[nb[0]][nb[1]];
+                if (v == -1) unassigned++;
+                else assignedSum += v;
+            }
+
+            if (assignedSum > clue || assignedSum + unassigned < clue) {
+                BitSet conf = new BitSet();
+                for (int[] nb : neighbors(clueCell[0], clueCell[1])) {
+                    if (assign[nb[0]][nb[1]] != -1) conf.set(nb[0] * cols + nb[1]);
+                }
+                return conf;
+            }
+        }
+
+        Nogood violated = updateWatches(2 * (rr * cols + cc) + assign[rr][cc]);
+        if (violated != null) {
+            bumpNogood(violated);
+            BitSet conf = new BitSet();
+            for (int lit : violated.lits) conf.set(lit >> 1);
+            return conf;
+        }
+        return null;
+    }
+
+    /**
+     * Le littéral lit vient de devenir vrai : chaque nogood qui le surveille cherche un autre
+     * littéral encore faux ou libre à surveiller. S'il n'y en a pas et que l'autre littéral
+     * surveillé est vrai lui aussi, le nogood est violé et renvoyé. Rien à défaire au retour
+     * arrière : libérer une case ne rend aucun littéral vrai.
+     * Si le bloqueur (un autre littéral du nogood, gardé dans la liste) est faux, le nogood ne
+     * peut pas être violé : cas le plus fréquent, traité sans lire le nogood.
+     */
+    private Nogood updateWatches(int lit) {
+        Nogood[] list = watches[lit];
+        int[] block = blockers[lit];
+        int count = watchCount[lit];
+        int kept = 0;
+        Nogood violated = null;
+        for (int i = 0; i < count; i++) {
+            Nogood g = list[i];
+            int blocker = block[i];
+            if (violated != null || holds(blocker ^ 1)) {
+                list[kept] = g;
+                block[kept++] = blocker;
+                continue;
+            }
+            int[] lits = g.lits;
+            if (lits.length == 1) {
+                violated = g;
+                list[kept] = g;
+                block[kept++] = blocker;
+                continue;
+            }
+            if (lits[0] == lit) {
+                lits[0] = lits[1];
+                lits[1] = lit;
+            }
+            if (holds(lits[0] ^ 1)) {
+                // l'autre littéral surveillé est faux : il devient le bloqueur
+                list[kept] = g;
+                block[kept++] = lits[0];
+                continue;
+            }
+            int p = 2;
+            while (p < lits.length && holds(lits[p])) p++;
+            if (p < lits.length) {
+                lits[1] = lits[p];
+                lits[p] = lit;
+                addWatch(lits[1], g, lits[0]);
+            } else {
+                list[kept] = g;
+                block[kept++] = lits[0];
+                if (holds(lits[0])) violated = g;
+            }
+        }
+        Arrays.fill(list, kept, count, null);
+        watchCount[lit] = kept;
+        return violated;
+    }
+
+    /** Vrai si la case du littéral a la valeur du littéral. */
+    private boolean holds(int lit) {
+        return value[lit >> 1] == (lit & 1);
+    }
+
+    private void addWatch(int lit, Nogood g, int blocker) {
+        int k = watchCount[lit]++;
+        if (k == watches[lit].length) {
+            watches[lit] = Arrays.copyOf(watches[lit], 2 * k);
+            blockers[lit] = Arrays.copyOf(blockers[lit], 2 * k);
+        }
+        watches[lit][k] = g;
+        blockers[lit][k] = blocker;
+    }
+
+    /**
+     * Mémorise l'affectation courante des cases du conflit. Les deux cases affectées le plus tard
+     * sont surveillées : ce sont les premières libérées au retour arrière.
+     */
+    private void recordNogood(BitSet conflict) {
+        int size = conflict.cardinality();
+        if (size == 0 || size > MAX_NOGOOD_SIZE) return;
+        if (nogoods.size() >= nogoodLimit) reduceNogoods();
+
+        int[] lits = new int[size];
+        int p = 0;
+        for (int x = conflict.nextSetBit(0); x >= 0; x = conflict.nextSetBit(x + 1)) {
+            lits[p++] = 2 * x + value[x];
+        }
+        for (int w = 0; w < Math.min(2, size); w++) {
+            int deepest = w;
+            for (int q = w + 1; q < size; q++) {
+                if (depth[lits[q] >> 1] > depth[lits[deepest] >> 1]) deepest = q;
+            }
+            int tmp = lits[w];
+            lits[w] = lits[deepest];
+            lits[deepest] = tmp;
+        }
+
+        Nogood g = new Nogood(lits, nogoodInc);
+        nogoods.add(g);
+        watchBoth(g);
+    }
+
+    private void watchBoth(Nogood g) {
+        int[] lits = g.lits;
+        if (lits.length == 1) {
+            addWatch(lits[0], g, lits[0]);
+        } else {
+            addWatch(lits[0], g, lits[1]);
+            addWatch(lits[1], g, lits[0]);
+        }
+    }
+
+    /**
+     * Garde les nogoods de 2 cases ou moins et la moitié la plus active des autres, puis
+     * reconstruit les listes de surveillance (les littéraux surveillés restent lits[0] et lits[1]).
+     */
+    private void reduceNogoods() {
+        List<Nogood> kept = new ArrayList<>();
+        List<Nogood> longer = new ArrayList<>();
+        for (Nogood g : nogoods) (g.lits.length <= 2 ? kept : longer).add(g);
+        longer.sort((a, b) -> Double.compare(b.activity, a.activity));
+        kept.addAll(longer.subList(0, longer.size() / 2));
+        nogoods = kept;
+
+        for (int l = 0; l < watches.length; l++) {
+            Arrays.fill(watches[l], 0, watchCount[l], null);
+            watchCount[l] = 0;
+        }
+        for (Nogood g : kept) watchBoth(g);
+    }
+
+    /** Un nogood violé gagne de l'activité ; comme pour les cases, les anciennes décroissent. */
+    private void bumpNogood(Nogood g) {
+        g.activity += nogoodInc;
+        nogoodInc /= NOGOOD_DECAY;
+        if (nogoodInc > 1e100) {
+            for (Nogood h : nogoods) h.activity *= 1e-100;
+            nogoodInc *= 1e-100;
+        }
+    }
+
+    /** Augmente l'activité des cases impliquées dans un échec (décroissance exponentielle des anciennes). */
+    private void bump(BitSet conf) {
+        for (int x = conf.nextSetBit(0); x >= 0; x = conf.nextSetBit(x + 1)) {
+            activity[x] += activityInc;
+        }
+        activityInc /= ACTIVITY_DECAY;
+        if (activityInc > 1e100) {
+            for (int i = 0; i < activity.length; i++) activity[i] *= 1e-100;
+            activityInc *= 1e-100;
+        }
+    }
+
+    /** Case libre d'activité maximale ; à égalité, degré maximal (ordre de FC_BOUNDS). */
+    private int selectByActivity() {
+        int best = -1;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (assign[r][c] != -1) continue;
+                int i = r * cols + c;
+                if (best < 0
+                        || activity[i] > activity[best]
+                        || (activity[i] == activity[best] && degree[r][c] > degree[best / cols][best % cols])) {
+                    best = i;
+                }
+            }
+        }
+        return best;
+    }
+
     private List<int[]> neighbors(int r, int c) {
         List<int[]> out = new ArrayList<>(8);
         for (int dr = -1; dr <= 1; dr++) {
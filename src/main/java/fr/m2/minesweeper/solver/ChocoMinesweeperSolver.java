@@ -1,10 +1,14 @@
 package fr.m2.minesweeper.solver;
 
 import fr.m2.minesweeper.model.MinesweeperInstance;
+import fr.m2.minesweeper.util.TimeLimits;
 import org.chocosolver.solver.Model;
 import org.chocosolver.solver.Solution;
 import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.limits.FailCounter;
 import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.search.strategy.selectors.values.IntDomainRandom;
+import org.chocosolver.solver.search.strategy.selectors.variables.DomOverWDeg;
 import org.chocosolver.solver.variables.IntVar;
 
 import java.util.ArrayList;
@@ -54,6 +58,45 @@ public class ChocoMinesweeperSolver {
         return grid;
     }
 
+    /**
+     * Trouver UNE solution avec une recherche aléatoire (domOverWDeg départagé au hasard,
+     * valeur au hasard, redémarrages Luby). Sert de point de départ aux chaînes d'échantillonnage.
+     */
+    public int[][] solveOneRandom(MinesweeperInstance inst, long seed) {
+        return solveOneRandom(inst, seed, 0);
+    }
+
+    /**
+     * Idem avec une limite de temps de recherche (ms, 0 = aucune) : null si aucune solution
+     * ou si la limite est atteinte avant d'en trouver une.
+     */
+    public int[][] solveOneRandom(MinesweeperInstance inst, long seed, long timeLimitMs) {
+        Model model = new Model("Minesweeper");
+        IntVar[][] mines = buildModel(model, inst, true); // boosters ON
+
+        Solver solver = model.getSolver();
+        if (timeLimitMs > 0) {
+            solver.limitTime(timeLimitMs);
+        }
+        IntVar[] flat = flatten(mines);
+        solver.setSearch(Search.intVarSearch(new DomOverWDeg<>(flat, seed), new IntDomainRandom(seed), flat));
+        solver.setLubyRestart(100, new FailCounter(model, 100), 1000);
+
+        Solution sol = solver.findSolution();
+        if (sol == null) return null;
+
+        int rows = inst.getRows();
+        int cols = inst.getCols();
+
+        int[][] grid = new int[rows][cols];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                grid[r][c] = sol.getIntVal(mines[r][c]);
+            }
+        }
+        return grid;
+    }
+
     /**
      * Énumération pour expériences (limite maxSolutions + time limit).
      */
@@ -68,8 +111,9 @@ public class ChocoMinesweeperSolver {
         IntVar[][] mines = buildModel(model, inst, true); // boosters ON
 
         Solver solver = model.getSolver();
-        if (timeLimit != null && !timeLimit.isBlank()) {
-            solver.limitTime(timeLimit);
+        long limitMs = TimeLimits.toMillis(timeLimit);
+        if (limitMs > 0) {
+            solver.limitTime(limitMs);
         }
 
         applyStrategy(solver, mines, strategy);
@@ -0,0 +1,402 @@
+package fr.m2.minesweeper.solver;
+
+import fr.m2.minesweeper.model.InstanceFeatures;
+import fr.m2.minesweeper.model.MinesweeperInstance;
+import fr.m2.minesweeper.solver.ChocoMinesweeperSolver.Strategy;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Choix du solveur (méthode + variante) instance par instance.
+ *
+ * Les règles sont apprises hors ligne à partir des CSV de résultats déjà produits
+ * (results_complete.csv) : petit arbre de décision sensible au coût sur les
+ * caractéristiques de InstanceFeatures. Chaque feuille choisit la méthode qui minimise
+ * le temps total de ses instances ; un TIMEOUT compte pour 10 fois le temps mesuré (PAR10).
+ */
+public class SolverSelector {
+
+    public static final double TIMEOUT_PENALTY = 10.0;
+
+    /** Méthode + variante, au format des colonnes complete_method / variant du CSV. */
+    public static class Choice {
+        public final String method;    // CHOCO ou BACKTRACKING
+        public final String variant;   // nom de Strategy (CHOCO) ou de Variant (BACKTRACKING)
+
+        public Choice(String method, String variant) {
+            this.method = method;
+            this.variant = variant;
+        }
+
+        /** Stratégie Choco correspondante (null si la méthode n'est pas CHOCO). */
+        public Strategy strategy() {
+            return "CHOCO".equals(method) ? Strategy.valueOf(variant) : null;
+        }
+
+        /** Variante du backtracking correspondante (null si la méthode n'est pas BACKTRACKING). */
+        public BacktrackingMinesweeperSolver.Variant backtrackingVariant() {
+            return "BACKTRACKING".equals(method) ? BacktrackingMinesweeperSolver.Variant.valueOf(variant) : null;
+        }
+
+        public String label() {
+            return method + "/" + variant;
+        }
+
+        public static Choice fromLabel(String label) {
+            int slash = label.indexOf('/');
+            return new Choice(label.substring(0, slash), label.substring(slash + 1));
+        }
+    }
+
+    /** Une instance déjà résolue : ses caractéristiques et le coût de chaque méthode. */
+    public static class Sample {
+        public final String instanceFile;
+        public final double[] features;
+        public final Map<String, Double> cost;   // label -> temps (ms, pénalisé si TIMEOUT)
+
+        public Sample(String instanceFile, double[] features, Map<String, Double> cost) {
+            this.instanceFile = instanceFile;
+            this.features = features;
+            this.cost = cost;
+        }
+    }
+
+    public static class Evaluation {
+        public final int instances;
+        public final double selectorMs;      // règles apprises sur toutes les instances
+        public final double crossValMs;      // leave-one-out : règles apprises sans l'instance
+        public final String bestFixedLabel;
+        public final double bestFixedMs;
+        public final double oracleMs;        // meilleure méthode de chaque instance
+
+        public Evaluation(int instances, double selectorMs, double crossValMs,
+                          String bestFixedLabel, double bestFixedMs, double oracleMs) {
+            this.instances = instances;
+            this.selectorMs = selectorMs;
+            this.crossValMs = crossValMs;
+            this.bestFixedLabel = bestFixedLabel;
+            this.bestFixedMs = bestFixedMs;
+            this.oracleMs = oracleMs;
+        }
+    }
+
+    // Arbre : feuille si feature < 0
+    private static class Node {
+        int feature = -1;
+        double threshold;
+        Node left, right;     // left : valeur <= threshold
+        String label;
+    }
+
+    private final Node root;
+
+    private SolverSelector(Node root) {
+        this.root = root;
+    }
+
+    public Choice select(MinesweeperInstance inst) {
+        return select(InstanceFeatures.of(inst).toArray());
+    }
+
+    public Choice select(double[] features) {
+        Node node = root;
+        while (node.feature >= 0) {
+            node = features[node.feature] <= node.threshold ? node.left : node.right;
+        }
+        return Choice.fromLabel(node.label);
+    }
+
+    /** Règles lisibles, une condition par ligne. */
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        describe(root, "", sb);
+        return sb.toString();
+    }
+
+    private void describe(Node node, String indent, StringBuilder sb) {
+        if (node.feature < 0) {
+            sb.append(indent).append("=> ").append(node.label).append('\n');
+            return;
+        }
+        String name = InstanceFeatures.NAMES[node.feature];
+        sb.append(indent).append(String.format(Locale.ROOT, "si %s <= %.4f :%n", name, node.threshold));
+        describe(node.left, indent + "    ", sb);
+        sb.append(indent).append(String.format(Locale.ROOT, "si %s > %.4f :%n", name, node.threshold));
+        describe(node.right, indent + "    ", sb);
+    }
+
+    // ------------------------------------------------------------------
+    // Apprentissage
+    // ------------------------------------------------------------------
+
+    public static SolverSelector train(List<Sample> samples, int maxDepth, int minLeaf) {
+        if (samples.isEmpty()) throw new IllegalArgumentException("Aucune instance pour l'apprentissage");
+        List<String> labels = new ArrayList<>(samples.get(0).cost.keySet());
+        Collections.sort(labels);
+        return new SolverSelector(build(samples, labels, maxDepth, Math.max(1, minLeaf)));
+    }
+
+    private static Node build(List<Sample> samples, List<String> labels, int depth, int minLeaf) {
+        Node leaf = new Node();
+        leaf.label = bestLabel(samples, labels);
+        double leafCost = totalCost(samples, leaf.label);
+        if (depth == 0 || samples.size() < 2 * minLeaf) return leaf;
+
+        int bestFeature = -1;
+        double bestThreshold = 0;
+        double bestCost = leafCost;
+
+        int nbFeatures = samples.get(0).features.length;
+        int k = labels.size();
+        for (int f = 0; f < nbFeatures; f++) {
+            final int feat = f;
+            List<Sample> sorted = new ArrayList<>(samples);
+            sorted.sort(Comparator.comparingDouble(s -> s.features[feat]));
+
+            // sommes préfixes par label pour évaluer chaque coupure en O(labels)
+            double[] total = new double[k];
+            for (Sample s : sorted) {
+                for (int l = 0; l < k; l++) total[l] += s.cost.get(labels.get(l));
+            }
+            double[] left = new double[k];
+            for (int i = 0; i < sorted.size() - 1; i++) {
+                for (int l = 0; l < k; l++) left[l] += sorted.get(i).cost.get(labels.get(l));
+
+                double v = sorted.get(i).features[f];
+                double next = sorted.get(i + 1).features[f];
+                if (v == next) continue;
+                if (i + 1 < minLeaf || sorted.size() - (i + 1) < minLeaf) continue;
+
+                double leftBest = Double.MAX_VALUE, rightBest = Double.MAX_VALUE;
+                for (int l = 0; l < k; l++) {
+                    leftBest = Math.min(leftBest, left[l]);
+                    rightBest = Math.min(rightBest, total[l] - left[l]);
+                }
+                if (leftBest + rightBest < bestCost - 1e-9) {
+                    bestCost = leftBest + rightBest;
+                    bestFeature = f;
+                    bestThreshold = (v + next) / 2;
+                }
+            }
+        }
+
+        if (bestFeature < 0) return leaf;
+
+        List<Sample> l = new ArrayList<>();
+        List<Sample> r = new ArrayList<>();
+        for (Sample s : samples) {
+            if (s.features[bestFeature] <= bestThreshold) l.add(s);
+            else r.add(s);
+        }
+        Node node = new Node();
+        node.feature = bestFeature;
+        node.threshold = bestThreshold;
+        node.left = build(l, labels, depth - 1, minLeaf);
+        node.right = build(r, labels, depth - 1, minLeaf);
+        return node;
+    }
+
+    private static String bestLabel(List<Sample> samples, List<String> labels) {
+        String best = labels.get(0);
+        double bestCost = Double.MAX_VALUE;
+        for (String label : labels) {
+            double c = totalCost(samples, label);
+            if (c < bestCost) {
+                bestCost = c;
+                best = label;
+            }
+        }
+        return best;
+    }
+
+    private static double totalCost(List<Sample> samples, String label) {
+        double c = 0;
+        for (Sample s : samples) c += s.cost.get(label);
+        return c;
+    }
+
+    // ------------------------------------------------------------------
+    // Évaluation
+    // ------------------------------------------------------------------
+
+    /**
+     * Compare le sélecteur (sur l'apprentissage et en leave-one-out) au meilleur solveur fixe
+     * et à l'oracle, en temps total pénalisé.
+     */
+    public static Evaluation evaluate(List<Sample> samples, int maxDepth, int minLeaf) {
+        if (samples.isEmpty()) throw new IllegalArgumentException("Aucune instance à évaluer");
+        List<String> labels = new ArrayList<>(samples.get(0).cost.keySet());
+        Collections.sort(labels);
+
+        SolverSelector full = train(samples, maxDepth, minLeaf);
+        double selectorMs = 0;
+        double oracleMs = 0;
+        double crossValMs = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            Sample s = samples.get(i);
+            selectorMs += s.cost.get(full.select(s.features).label());
+            oracleMs += Collections.min(s.cost.values());
+
+            List<Sample> others = new ArrayList<>(samples);
+            others.remove(i);
+            SolverSelector loo = train(others, maxDepth, minLeaf);
+            crossValMs += s.cost.get(loo.select(s.features).label());
+        }
+
+        String bestFixed = bestLabel(samples, labels);
+        return new Evaluation(samples.size(), selectorMs, crossValMs,
+                bestFixed, totalCost(samples, bestFixed), oracleMs);
+    }
+
+    /**
+     * Profondeur (0..maxDepth) dont le coût leave-one-out est le plus faible.
+     * Profondeur 0 = meilleur solveur fixe : sur peu d'instances, un arbre plus profond
+     * apprend surtout le bruit de mesure.
+     */
+    public static int chooseDepth(List<Sample> samples, int maxDepth, int minLeaf) {
+        if (samples.isEmpty()) throw new IllegalArgumentException("Aucune instance pour choisir la profondeur");
+        int best = 0;
+        double bestCost = Double.MAX_VALUE;
+        for (int d = 0; d <= maxDepth; d++) {
+            double c = evaluate(samples, d, minLeaf).crossValMs;
+            if (c < bestCost - 1e-9) {
+                bestCost = c;
+                best = d;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Coût leave-one-out imbriqué : pour chaque instance, la profondeur est elle-même choisie
+     * (chooseDepth) sans cette instance. Contrairement au crossValMs de la profondeur retenue
+     * par chooseDepth, l'instance testée n'influence aucun choix : c'est l'estimation honnête
+     * du gain sur des instances nouvelles.
+     */
+    public static double nestedCrossValMs(List<Sample> samples, int maxDepth, int minLeaf) {
+        if (samples.size() < 2) throw new IllegalArgumentException("Il faut au moins 2 instances");
+        double cost = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            Sample s = samples.get(i);
+            List<Sample> others = new ArrayList<>(samples);
+            others.remove(i);
+            int depth = chooseDepth(others, maxDepth, minLeaf);
+            cost += s.cost.get(train(others, depth, minLeaf).select(s.features).label());
+        }
+        return cost;
+    }
+
+    // ------------------------------------------------------------------
+    // Lecture des CSV de résultats
+    // ------------------------------------------------------------------
+
+    /**
+     * Lit un ou plusieurs CSV (colonnes de results_complete.csv) et recharge chaque instance
+     * depuis instancesDir. Si une même (instance, méthode) apparaît plusieurs fois, les coûts sont
+     * moyennés. Seules les instances résolues par toutes les méthodes vues sont gardées.
+     */
+    public static List<Sample> loadSamples(List<String> csvPaths, String instancesDir) throws IOException {
+        Map<String, Map<String, double[]>> costs = new LinkedHashMap<>();   // fichier -> label -> {somme, nb}
+        Set<String> labels = new TreeSet<>();
+
+        for (String path : csvPaths) {
+            try (BufferedReader in = new BufferedReader(new FileReader(path))) {
+                String header = in.readLine();
+                if (header == null) continue;
+                List<String> cols = Arrays.asList(header.trim().split(","));
+                int iMethod = column(cols, "complete_method", path);
+                int iVariant = column(cols, "variant", path);
+                int iTime = column(cols, "timeMs", path);
+                int iStatus = column(cols, "status", path);
+                int iFile = column(cols, "instance_file", path);
+
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.isBlank()) continue;
+                    String[] f = line.trim().split(",");
+                    if (f.length < cols.size()) continue;   // ligne incomplète
+
+                    String label = f[iMethod] + "/" + f[iVariant];
+                    double ms = Double.parseDouble(f[iTime]);
+                    if ("TIMEOUT".equalsIgnoreCase(f[iStatus])) ms *= TIMEOUT_PENALTY;
+
+                    labels.add(label);
+                    double[] acc = costs.computeIfAbsent(f[iFile], k -> new HashMap<>())
+                            .computeIfAbsent(label, k -> new double[2]);
+                    acc[0] += ms;
+                    acc[1]++;
+                }
+            }
+        }
+
+        List<Sample> samples = new ArrayList<>();
+        for (Map.Entry<String, Map<String, double[]>> e : costs.entrySet()) {
+            if (!e.getValue().keySet().containsAll(labels)) continue;
+
+            Map<String, Double> cost = new TreeMap<>();
+            for (Map.Entry<String, double[]> c : e.getValue().entrySet()) {
+                cost.put(c.getKey(), c.getValue()[0] / c.getValue()[1]);
+            }
+            MinesweeperInstance inst = MinesweeperInstance.importFromJson(
+                    new File(instancesDir, e.getKey()).getPath());
+            samples.add(new Sample(e.getKey(), InstanceFeatures.of(inst).toArray(), cost));
+        }
+        return samples;
+    }
+
+    private static int column(List<String> cols, String name, String path) throws IOException {
+        int i = cols.indexOf(name);
+        if (i < 0) throw new IOException(path + " : colonne '" + name + "' manquante");
+        return i;
+    }
+
+    /**
+     * Apprend les règles sur les CSV donnés (par défaut results_complete.csv) et affiche
+     * le gain par rapport au meilleur solveur fixe et à l'oracle.
+     */
+    public static void main(String[] args) {
+        List<String> csvPaths = args.length > 0
+                ? Arrays.asList(args)
+                : Collections.singletonList("data/results/results_complete.csv");
+        int maxDepth = 2;
+        int minLeaf = 3;
+
+        try {
+            List<Sample> samples = loadSamples(csvPaths, "data/instances");
+            if (samples.isEmpty()) {
+                System.out.println("Aucune instance exploitable dans " + csvPaths);
+                return;
+            }
+
+            int depth = chooseDepth(samples, maxDepth, minLeaf);
+            SolverSelector selector = train(samples, depth, minLeaf);
+            System.out.println("Règles apprises (" + samples.size() + " instances, profondeur "
+                    + depth + " choisie en leave-one-out) :");
+            System.out.print(selector.describe());
+
+            Evaluation ev = evaluate(samples, depth, minLeaf);
+            System.out.println();
+            System.out.printf(Locale.ROOT, "Meilleur solveur fixe (%s) : %.0f ms%n", ev.bestFixedLabel, ev.bestFixedMs);
+            System.out.printf(Locale.ROOT, "Sélecteur (apprentissage)  : %.0f ms (%.1f %% de gain)%n",
+                    ev.selectorMs, 100.0 * (1 - ev.selectorMs / ev.bestFixedMs));
+            System.out.printf(Locale.ROOT, "Sélecteur (leave-one-out)  : %.0f ms (%.1f %% de gain, optimiste :"
+                    + " la profondeur a été choisie sur ce même leave-one-out)%n",
+                    ev.crossValMs, 100.0 * (1 - ev.crossValMs / ev.bestFixedMs));
+            if (samples.size() >= 2) {
+                double nested = nestedCrossValMs(samples, maxDepth, minLeaf);
+                System.out.printf(Locale.ROOT, "Sélecteur (LOO imbriqué)   : %.0f ms (%.1f %% de gain, profondeur"
+                        + " choisie sans l'instance testée)%n",
+                        nested, 100.0 * (1 - nested / ev.bestFixedMs));
+            }
+            System.out.printf(Locale.ROOT, "Oracle                     : %.0f ms (%.1f %% de gain)%n",
+                    ev.oracleMs, 100.0 * (1 - ev.oracleMs / ev.bestFixedMs));
+            System.out.println("(temps totaux, TIMEOUT compté x" + (int) TIMEOUT_PENALTY + ")");
+        } catch (IOException e) {
+            System.err.println("Erreur IO : " + e.getMessage());
+        }
+    }
+}
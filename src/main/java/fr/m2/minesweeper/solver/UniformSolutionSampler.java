@@ -0,0 +1,869 @@
+package fr.m2.minesweeper.solver;
+
+import fr.m2.minesweeper.model.MinesweeperInstance;
+import fr.m2.minesweeper.util.TimeLimits;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Estimation des probabilités de mine par case à partir de solutions tirées (quasi) uniformément.
+ *
+ * Les cases contraintes (voisines d'un indice) se regroupent en composantes de frontière,
+ * reliées par des indices communs, qui ne dépendent les unes des autres que par totalMines.
+ *
+ * - EXACT_ZDD : tirages exactement uniformes et indépendants (biais nul), soit sur le ZDD de
+ *   la grille s'il tient dans le budget de largeur, soit composante par composante quand
+ *   chacune a son propre ZDD (bien plus étroit) : le nombre de mines de chaque composante est
+ *   tiré par convolution de leurs comptes, puis une affectation uniforme par composante.
+ * - MCMC : sinon (une composante trop large), Gibbs par composantes : une composante avec ZDD
+ *   est retirée entière, exactement, sachant le nombre de mines hors composante ; une
+ *   composante sans ZDD est traitée par fenêtres 3x3 (heat-bath), qui peuvent mal mélanger.
+ *   Chaque flux part d'une solution Choco aléatoire différente (recherche bornée par la
+ *   limite de temps).
+ *
+ * Intervalles de confiance (95 %) : en mode exact, loi binomiale sur l'ensemble des tirages.
+ * En MCMC, à partir des moyennes par flux (Student à m - 1 degrés de liberté), pour que des
+ * flux bloqués dans des régions différentes élargissent l'intervalle au lieu de s'annuler ; toutes
+ * les demi-largeurs valent NaN tant que le R-hat maximal (Gelman-Rubin entre flux, lots complets)
+ * n'est pas calculé ou dépasse RHAT_OK. Le R-hat reste un diagnostic, pas une borne sur le
+ * biais. Avec un seul flux, l'IC vient des moyennes de lots de ce flux, sans contrôle entre
+ * flux.
+ */
+public class UniformSolutionSampler {
+
+    public enum Mode {
+        EXACT_ZDD,   // tirage exact (ZDD de la grille ou des composantes)
+        MCMC         // chaînes de Markov, quasi uniforme
+    }
+
+    public static class Estimate {
+        public final Mode mode;
+        public final double[][] probability;   // estimation P(mine) par case
+        public final double[][] halfWidth;     // demi-largeur de l'IC 95 % (NaN si non fiable)
+        public final double maxHalfWidth;      // NaN si au moins une case est NaN
+        public final double maxRhat;           // 1.0 en mode exact, NaN si non calculé (diagnostic, pas une borne)
+        public final double acceptanceRate;    // NaN en mode exact
+        public final long samples;
+        public final int streams;
+        public final long timeMs;
+        public final double samplesPerSecond;
+        public final boolean converged;        // précision (et R-hat) atteinte avant la limite de temps
+
+        public Estimate(Mode mode, double[][] probability, double[][] halfWidth, double maxHalfWidth,
+                        double maxRhat, double acceptanceRate, long samples, int streams,
+                        long timeMs, boolean converged) {
+            this.mode = mode;
+            this.probability = probability;
+            this.halfWidth = halfWidth;
+            this.maxHalfWidth = maxHalfWidth;
+            this.maxRhat = maxRhat;
+            this.acceptanceRate = acceptanceRate;
+            this.samples = samples;
+            this.streams = streams;
+            this.timeMs = timeMs;
+            this.samplesPerSecond = timeMs == 0 ? samples * 1000.0 : samples * 1000.0 / timeMs;
+            this.converged = converged;
+        }
+    }
+
+    private static final double Z_95 = 1.96;
+    // quantiles 97.5 % de Student, 1 à 30 degrés de liberté (au-delà : Z_95)
+    private static final double[] T_95 = {
+            12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+    private static final double RHAT_OK = 1.05;
+    private static final int MAX_ROUNDS = 100_000;   // garde-fou si pas de limite de temps
+    private static final int COMPONENT_WIDTH_LIMIT = 50_000;   // ZDD d'une composante
+
+    private final int streams;
+    private final int batchSize;        // échantillons par flux et par tour
+    private final int zddWidthLimit;    // au-delà : bascule en MCMC
+    private final int burnInSweeps;     // tirages ignorés au début de chaque chaîne MCMC
+
+    public UniformSolutionSampler() {
+        this(Math.max(2, Runtime.getRuntime().availableProcessors()), 200, 50_000, 50);
+    }
+
+    public UniformSolutionSampler(int streams, int batchSize, int zddWidthLimit, int burnInSweeps) {
+        this.streams = Math.max(1, streams);
+        this.batchSize = Math.max(1, batchSize);
+        this.zddWidthLimit = zddWidthLimit;
+        this.burnInSweeps = burnInSweeps;
+    }
+
+    /**
+     * Tire des solutions jusqu'à ce que toutes les demi-largeurs soient <= targetHalfWidth
+     * (et R-hat <= 1.05 en MCMC), ou jusqu'à la limite de temps ("500ms", "10s", "" = aucune).
+     * La limite couvre la compilation des composantes, la recherche des solutions de départ,
+     * la chauffe et les lots (un lot entamé s'arrête à l'échéance, après au moins un tirage).
+     * Si aucune chaîne ne démarre à temps, le résultat est non convergé, sans échantillon
+     * (probabilités NaN). Renvoie null si l'instance n'a pas de solution.
+     */
+    public Estimate estimate(MinesweeperInstance inst, double targetHalfWidth, String timeLimit, long seed) {
+        long start = System.currentTimeMillis();
+        long deadline = TimeLimits.deadline(start, timeLimit);
+
+        int rows = inst.getRows();
+        int cols = inst.getCols();
+        int n = rows * cols;
+
+        ExecutorService pool = Executors.newFixedThreadPool(streams);
+        try {
+            // 1) Choix du mode + création des flux
+            Mode mode;
+            List<SampleStream> flows = new ArrayList<>(streams);
+
+            ZddSolutionSet zdd = ZddSolutionSet.compile(inst, zddWidthLimit);
+            Frontier frontier = zdd == null ? new Frontier(inst, deadline) : null;
+            if (zdd != null) {
+                if (zdd.count().signum() == 0) return null;
+                mode = Mode.EXACT_ZDD;
+                for (int k = 0; k < streams; k++) {
+                    flows.add(new ZddStream(zdd, new Random(seed + k)));
+                }
+            } else if (frontier.infeasible) {
+                return null;
+            } else if (frontier.complete()) {
+                // ZDD de la grille trop large, mais chaque composante a le sien : toujours exact
+                mode = Mode.EXACT_ZDD;
+                for (int k = 0; k < streams; k++) {
+                    flows.add(new FrontierStream(frontier, n, new Random(seed + k)));
+                }
+            } else {
+                mode = Mode.MCMC;
+                long searchMs = deadline == 0 ? 0 : Math.max(1, deadline - System.currentTimeMillis());
+                List<Future<SampleStream>> starts = new ArrayList<>();
+                for (int k = 0; k < streams; k++) {
+                    long streamSeed = seed + k;
+                    starts.add(pool.submit(() -> {
+                        int[][] init = new ChocoMinesweeperSolver().solveOneRandom(inst, streamSeed, searchMs);
+                        if (init == null) return null;
+                        McmcChain chain = new McmcChain(inst, frontier, init, new Random(streamSeed));
+                        for (int s = 0; s < burnInSweeps && !expired(deadline); s++) chain.pass();
+                        return chain;
+                    }));
+                }
+                for (Future<SampleStream> f : starts) {
+                    SampleStream s = get(f, deadline);
+                    if (s != null) flows.add(s);
+                }
+                if (flows.isEmpty()) {
+                    // aucune solution de départ : preuve d'absence de solution, ou limite de temps atteinte
+                    if (deadline == 0 || System.currentTimeMillis() < deadline) return null;
+                    return noSample(rows, cols, System.currentTimeMillis() - start);
+                }
+            }
+            int m = flows.size();   // flux dont la chaîne a démarré à temps
+
+            // 2) Tours : chaque flux produit un lot (partiel si l'échéance tombe pendant le lot)
+            double[][] total = new double[m][n];   // somme des tirages, par flux
+            long[] draws = new long[m];
+            double[][] sum = new double[m][n];     // somme des moyennes de lots complets, par flux
+            double[][] sumSq = new double[m][n];
+            int rounds = 0;                        // tours dont tous les lots sont complets
+            boolean converged = false;
+            Stats stats;
+
+            while (true) {
+                List<Future<Batch>> batches = new ArrayList<>(m);
+                for (SampleStream s : flows) {
+                    batches.add(pool.submit(() -> s.batch(batchSize, deadline)));
+                }
+                Batch[] got = new Batch[m];
+                boolean complete = true;
+                for (int k = 0; k < m; k++) {
+                    got[k] = get(batches.get(k));
+                    draws[k] += got[k].size;
+                    for (int i = 0; i < n; i++) total[k][i] += got[k].sum[i];
+                    complete &= got[k].size == batchSize;
+                }
+                if (complete) {
+                    for (int k = 0; k < m; k++) {
+                        for (int i = 0; i < n; i++) {
+                            double mean = got[k].sum[i] / batchSize;
+                            sum[k][i] += mean;
+                            sumSq[k][i] += mean * mean;
+                        }
+                    }
+                    rounds++;
+                }
+
+                stats = computeStats(total, draws, sum, sumSq, m, rounds, n, mode);
+                boolean rhatOk = mode == Mode.EXACT_ZDD || m == 1 || stats.maxRhat <= RHAT_OK;
+                if (rounds >= 2 && stats.maxHalfWidth <= targetHalfWidth && rhatOk) {
+                    converged = true;
+                    break;
+                }
+                if (expired(deadline)) break;
+                if (rounds >= MAX_ROUNDS) break;
+            }
+
+            // 3) Résultat
+            double[][] p = new double[rows][cols];
+            double[][] hw = new double[rows][cols];
+            for (int i = 0; i < n; i++) {
+                p[i / cols][i % cols] = stats.mean[i];
+                hw[i / cols][i % cols] = stats.halfWidth[i];
+            }
+
+            double acceptance = Double.NaN;
+            if (mode == Mode.MCMC) {
+                long proposed = 0, accepted = 0;
+                for (SampleStream s : flows) {
+                    proposed += ((McmcChain) s).proposed;
+                    accepted += ((McmcChain) s).accepted;
+                }
+                acceptance = proposed == 0 ? 0 : (double) accepted / proposed;
+            }
+
+            long samples = 0;
+            for (long d : draws) samples += d;
+            long end = System.currentTimeMillis();
+            return new Estimate(mode, p, hw, stats.maxHalfWidth, stats.maxRhat, acceptance,
+                    samples, m, end - start, converged);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static boolean expired(long deadline) {
+        return deadline != 0 && System.currentTimeMillis() > deadline;
+    }
+
+    /** Résultat MCMC sans aucun échantillon (aucune chaîne démarrée avant la limite de temps). */
+    private static Estimate noSample(int rows, int cols, long timeMs) {
+        double[][] p = new double[rows][cols];
+        double[][] hw = new double[rows][cols];
+        for (int r = 0; r < rows; r++) {
+            Arrays.fill(p[r], Double.NaN);
+            Arrays.fill(hw[r], Double.NaN);
+        }
+        return new Estimate(Mode.MCMC, p, hw, Double.NaN, Double.NaN, Double.NaN, 0, 0, timeMs, false);
+    }
+
+    private static class Stats {
+        double[] mean;
+        double[] halfWidth;
+        double maxHalfWidth;
+        double maxRhat;
+    }
+
+    /**
+     * Moyenne sur tous les tirages ; IC binomial en mode exact, par moyennes de flux en MCMC
+     * (moyennes de lots si un seul flux) ; R-hat entre flux sur les lots complets : 1.0 en mode
+     * exact, NaN en MCMC s'il n'est pas calculable (un seul flux ou moins de deux tours).
+     */
+    private Stats computeStats(double[][] total, long[] draws, double[][] sum, double[][] sumSq,
+                               int m, int rounds, int n, Mode mode) {
+        boolean withRhat = mode == Mode.MCMC && m > 1 && rounds > 1;
+        long allDraws = 0;
+        for (long d : draws) allDraws += d;
+
+        Stats st = new Stats();
+        st.mean = new double[n];
+        st.halfWidth = new double[n];
+        st.maxRhat = mode == Mode.EXACT_ZDD ? 1.0 : withRhat ? 0.0 : Double.NaN;
+
+        double[] rhat = new double[n];
+        for (int i = 0; i < n; i++) {
+            double tot = 0;
+            for (int k = 0; k < m; k++) tot += total[k][i];
+            st.mean[i] = tot / allDraws;
+            if (withRhat) {
+                rhat[i] = rhat(sum, sumSq, m, rounds, i);
+                st.maxRhat = Math.max(st.maxRhat, rhat[i]);
+            }
+        }
+        // une seule case mal mélangée suffit à douter de toutes les autres
+        boolean mixed = !(mode == Mode.MCMC && m > 1) || st.maxRhat <= RHAT_OK;
+
+        for (int i = 0; i < n; i++) {
+            double mean = st.mean[i];
+            double hw;
+            if (mode == Mode.EXACT_ZDD) {
+                hw = allDraws > 1 ? Z_95 * Math.sqrt(mean * (1 - mean) / allDraws) : 1.0;
+            } else if (!mixed) {
+                hw = Double.NaN;
+            } else if (m > 1) {
+                double var = 0;
+                for (int k = 0; k < m; k++) {
+                    double d = total[k][i] / draws[k] - mean;
+                    var += d * d;
+                }
+                hw = student(m - 1) * Math.sqrt(var / (m - 1) / m);
+            } else if (rounds > 1) {
+                double bm = sum[0][i] / rounds;
+                double var = Math.max(0, (sumSq[0][i] - rounds * bm * bm) / (rounds - 1));
+                hw = student(rounds - 1) * Math.sqrt(var / rounds);
+            } else {
+                hw = Double.NaN;
+            }
+            st.halfWidth[i] = hw;
+            st.maxHalfWidth = Double.isNaN(hw) || Double.isNaN(st.maxHalfWidth)
+                    ? Double.NaN : Math.max(st.maxHalfWidth, hw);
+        }
+        return st;
+    }
+
+    /** R-hat de la case i (chaque flux = une chaîne de "rounds" moyennes de lots). */
+    private static double rhat(double[][] sum, double[][] sumSq, int m, int rounds, int i) {
+        double w = 0, meanOfMeans = 0;
+        double[] streamMean = new double[m];
+        for (int k = 0; k < m; k++) {
+            streamMean[k] = sum[k][i] / rounds;
+            meanOfMeans += streamMean[k];
+            w += Math.max(0, (sumSq[k][i] - rounds * streamMean[k] * streamMean[k]) / (rounds - 1));
+        }
+        meanOfMeans /= m;
+        w /= m;
+        double b = 0;
+        for (int k = 0; k < m; k++) b += (streamMean[k] - meanOfMeans) * (streamMean[k] - meanOfMeans);
+        b = rounds * b / (m - 1);
+
+        if (w == 0) return (b == 0) ? 1.0 : Double.POSITIVE_INFINITY;
+        return Math.sqrt(((rounds - 1.0) / rounds * w + b / rounds) / w);
+    }
+
+    private static double student(int degrees) {
+        return degrees <= T_95.length ? T_95[degrees - 1] : Z_95;
+    }
+
+    // ------------------------------------------------------------------
+    // Flux d'échantillons
+    // ------------------------------------------------------------------
+
+    /** Somme des tirages d'un lot, par case, et nombre de tirages effectués. */
+    private static class Batch {
+        final double[] sum;
+        final int size;
+
+        Batch(double[] sum, int size) {
+            this.sum = sum;
+            this.size = size;
+        }
+    }
+
+    private interface SampleStream {
+        /** Lot d'au plus size tirages ; s'arrête à deadline (0 = aucune), après au moins un tirage. */
+        Batch batch(int size, long deadline);
+    }
+
+    private static class ZddStream implements SampleStream {
+        private final ZddSolutionSet zdd;
+        private final Random rng;
+
+        ZddStream(ZddSolutionSet zdd, Random rng) {
+            this.zdd = zdd;
+            this.rng = rng;
+        }
+
+        @Override
+        public Batch batch(int size, long deadline) {
+            int cols = zdd.getCols();
+            double[] sum = new double[zdd.getRows() * cols];
+            int done = 0;
+            while (done < size && (done == 0 || !expired(deadline))) {
+                int[][] sol = zdd.sample(rng);
+                for (int i = 0; i < sum.length; i++) sum[i] += sol[i / cols][i % cols];
+                done++;
+            }
+            return new Batch(sum, done);
+        }
+    }
+
+    /** Tirages exacts et indépendants par composantes (Frontier.jointSample). */
+    private static class FrontierStream implements SampleStream {
+        private final Frontier frontier;
+        private final int n;
+        private final Random rng;
+
+        FrontierStream(Frontier frontier, int n, Random rng) {
+            this.frontier = frontier;
+            this.n = n;
+            this.rng = rng;
+        }
+
+        @Override
+        public Batch batch(int size, long deadline) {
+            int cols = frontier.cols;
+            double[] sum = new double[n];
+            int done = 0;
+            while (done < size && (done == 0 || !expired(deadline))) {
+                int[][] sol = frontier.jointSample(rng);
+                int mines = 0;
+                for (int i : frontier.constrainedCells()) mines += sol[i / cols][i % cols];
+                double freeProb = frontier.freeProbability(mines);
+                for (int i = 0; i < n; i++) {
+                    sum[i] += frontier.compOf[i] >= 0 ? sol[i / cols][i % cols] : freeProb;
+                }
+                done++;
+            }
+            return new Batch(sum, done);
+        }
+    }
+
+    /**
+     * Composantes de frontière de l'instance, partagées (en lecture) par tous les flux MCMC.
+     * Deux cases contraintes sont dans la même composante si elles sont voisines d'un même
+     * indice. Pour chaque composante : un ZDD compilé sur l'instance réduite à ses indices,
+     * avec ses autres cases fixées à 0, et le log du nombre d'affectations à k mines.
+     */
+    private static class Frontier {
+        final int[] compOf;            // composante de chaque case, -1 si non contrainte
+        final int[][] cells;           // cases de chaque composante
+        final ZddSolutionSet[] zdd;    // null : trop large (ou échéance), fenêtres 3x3
+        final double[][] logCount;     // logCount[c][k] = log(nb d'affectations à k mines)
+        boolean infeasible;            // une composante n'a aucune affectation
+
+        final int rows, cols;
+        private final Integer totalMines;
+        private int freeCells;
+        private final double[] logFact;   // log(i!) pour les poids binomiaux
+        private double[][] logW;          // logW[c][s] : log W(s) sur les c premières composantes
+        private int[] allCells;
+
+        Frontier(MinesweeperInstance inst, long deadline) {
+            rows = inst.getRows();
+            cols = inst.getCols();
+            totalMines = inst.getTotalMines();
+            int n = rows * cols;
+            Integer[][] clues = inst.getClues();
+
+            // union-find sur les voisins de chaque indice
+            int[] parent = new int[n];
+            for (int i = 0; i < n; i++) parent[i] = i;
+            boolean[] constrained = new boolean[n];
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    if (clues[r][c] == null) continue;
+                    int first = -1;
+                    for (int j : neighborIndices(rows, cols, r, c)) {
+                        constrained[j] = true;
+                        if (first < 0) first = j;
+                        else parent[find(parent, j)] = find(parent, first);
+                    }
+                }
+            }
+
+            compOf = new int[n];
+            Arrays.fill(compOf, -1);
+            for (int i = 0; i < n; i++) if (!constrained[i]) freeCells++;
+            List<List<Integer>> comps = new ArrayList<>();
+            Map<Integer, Integer> idOfRoot = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                if (!constrained[i]) continue;
+                int id = idOfRoot.computeIfAbsent(find(parent, i), root -> {
+                    comps.add(new ArrayList<>());
+                    return comps.size() - 1;
+                });
+                compOf[i] = id;
+                comps.get(id).add(i);
+            }
+
+            int nbComps = comps.size();
+            allCells = new int[n - freeCells];
+            for (int i = 0, p = 0; i < n; i++) if (constrained[i]) allCells[p++] = i;
+            cells = new int[nbComps][];
+            zdd = new ZddSolutionSet[nbComps];
+            logCount = new double[nbComps][];
+            for (int c = 0; c < nbComps; c++) {
+                cells[c] = comps.get(c).stream().mapToInt(Integer::intValue).toArray();
+                if (expired(deadline)) continue;
+
+                Integer[][] own = new Integer[rows][cols];
+                for (int r = 0; r < rows; r++) {
+                    for (int cc = 0; cc < cols; cc++) {
+                        if (clues[r][cc] == null) continue;
+                        int[] nb = neighborIndices(rows, cols, r, cc);
+                        if (nb.length > 0 && compOf[nb[0]] == c) own[r][cc] = clues[r][cc];
+                    }
+                }
+                boolean[] variable = new boolean[n];
+                for (int i : cells[c]) variable[i] = true;
+
+                ZddSolutionSet z = ZddSolutionSet.compile(
+                        new MinesweeperInstance(rows, cols, own, null), variable, COMPONENT_WIDTH_LIMIT);
+                if (z == null) continue;
+                BigInteger[] counts = z.countByMines();   // calculé ici, avant le partage entre flux
+                logCount[c] = new double[counts.length];
+                boolean any = false;
+                for (int k = 0; k < counts.length; k++) {
+                    logCount[c][k] = log(counts[k]);
+                    any |= counts[k].signum() > 0;
+                }
+                if (!any) infeasible = true;
+                zdd[c] = z;
+            }
+
+            logFact = new double[n + 1];
+            for (int i = 1; i <= n; i++) logFact[i] = logFact[i - 1] + Math.log(i);
+            if (!infeasible && complete()) prepareJoint();
+        }
+
+        /** Toutes les cases contraintes (toutes composantes confondues). */
+        int[] constrainedCells() {
+            return allCells;
+        }
+
+        /** Toutes les composantes ont leur ZDD : tirage exact possible (jointSample). */
+        boolean complete() {
+            for (ZddSolutionSet z : zdd) if (z == null) return false;
+            return true;
+        }
+
+        /**
+         * Solution uniforme restreinte aux cases contraintes (complete() requis) : nombre total
+         * de mines s tiré selon W(s) * C(F, totalMines - s), où W(s) = nombre d'affectations
+         * des composantes à s mines (convolution des N_c(k)), puis k de chaque composante en
+         * remontant, puis une affectation uniforme à k mines par composante. Les cases libres
+         * restent à 0. Renvoie null s'il n'y a aucune solution.
+         */
+        int[][] jointSample(Random rng) {
+            int nbComps = zdd.length;
+            double[] last = new double[logW[nbComps].length];
+            for (int s = 0; s < last.length; s++) last[s] = logW[nbComps][s] + logFree(s);
+            int s = pickLog(last, rng);
+            if (s < 0) return null;
+
+            int[][] grid = new int[rows][cols];
+            for (int c = nbComps - 1; c >= 0; c--) {
+                double[] byK = new double[Math.min(logCount[c].length, s + 1)];
+                for (int k = 0; k < byK.length; k++) byK[k] = logCount[c][k] + logW[c][s - k];
+                int k = pickLog(byK, rng);
+                int[][] sol = zdd[c].sample(rng, k);
+                for (int i : cells[c]) grid[i / cols][i % cols] = sol[i / cols][i % cols];
+                s -= k;
+            }
+            return grid;
+        }
+
+        /** Mines restantes pour les cases libres, sachant s mines contraintes. */
+        double freeProbability(int s) {
+            if (freeCells == 0) return 0;
+            return totalMines == null ? 0.5 : (double) (totalMines - s) / freeCells;
+        }
+
+        /** log C(F, totalMines - s) ; -inf si impossible, 0 si le total n'est pas fixé. */
+        double logFree(int s) {
+            if (totalMines == null) return 0;
+            int rest = totalMines - s;
+            if (rest < 0 || rest > freeCells) return Double.NEGATIVE_INFINITY;
+            return logFact[freeCells] - logFact[rest] - logFact[freeCells - rest];
+        }
+
+        private void prepareJoint() {
+            int nbComps = zdd.length;
+            int maxMines = rows * cols;
+            logW = new double[nbComps + 1][maxMines + 1];
+            for (double[] row : logW) Arrays.fill(row, Double.NEGATIVE_INFINITY);
+            logW[0][0] = 0;
+            for (int c = 0; c < nbComps; c++) {
+                for (int s = 0; s <= maxMines; s++) {
+                    if (logW[c][s] == Double.NEGATIVE_INFINITY) continue;
+                    for (int k = 0; k < logCount[c].length && s + k <= maxMines; k++) {
+                        logW[c + 1][s + k] = logAdd(logW[c + 1][s + k], logW[c][s] + logCount[c][k]);
+                    }
+                }
+            }
+            infeasible = true;
+            for (int s = 0; s <= maxMines; s++) {
+                if (logW[nbComps][s] + logFree(s) > Double.NEGATIVE_INFINITY) infeasible = false;
+            }
+        }
+
+        private static double logAdd(double a, double b) {
+            if (a == Double.NEGATIVE_INFINITY) return b;
+            if (b == Double.NEGATIVE_INFINITY) return a;
+            double hi = Math.max(a, b);
+            return hi + Math.log1p(Math.exp(Math.min(a, b) - hi));
+        }
+
+        private static int find(int[] parent, int i) {
+            while (parent[i] != i) {
+                parent[i] = parent[parent[i]];
+                i = parent[i];
+            }
+            return i;
+        }
+
+        private static double log(BigInteger x) {
+            if (x.signum() == 0) return Double.NEGATIVE_INFINITY;
+            int shift = Math.max(0, x.bitLength() - 60);
+            return Math.log(x.shiftRight(shift).doubleValue()) + shift * Math.log(2);
+        }
+    }
+
+    /**
+     * Chaîne de Gibbs par composantes sur l'ensemble des solutions.
+     *
+     * Seules les cases "contraintes" (voisines d'au moins un indice) sont simulées. Les F autres
+     * cases sont interchangeables : avec k mines sur les cases contraintes, la configuration pèse
+     * C(F, totalMines - k) (ou 2^F si le total n'est pas fixé), et chaque case libre est une mine
+     * avec probabilité (totalMines - k) / F (ou 1/2) : on l'estime directement (Rao-Blackwell).
+     *
+     * Un passage traite chaque composante une fois. Composante avec ZDD : son nombre de mines k
+     * est tiré proportionnellement à N(k) * C(F, totalMines - hors - k), puis une affectation
+     * uniforme à k mines (loi conditionnelle exacte). Sans ZDD : max(1, taille / 3) fenêtres 3x3
+     * heat-bath centrées dans la composante. Un tirage est pris après chaque passage.
+     */
+    private static class McmcChain implements SampleStream {
+        private final int rows, cols, n;
+        private final int[] clue;         // -1 si pas d'indice
+        private final int[][] neigh;      // voisins de chaque case
+        private final boolean[] constrained;
+        private final Frontier frontier;
+
+        private final int[] mine;
+        private final int[] nbSum;        // nb de mines parmi les voisins
+        private final int[] compMines;    // nb de mines par composante
+        private int constrainedMines;
+        private final Random rng;
+
+        long proposed;
+        long accepted;
+
+        McmcChain(MinesweeperInstance inst, Frontier frontier, int[][] start, Random rng) {
+            this.rows = inst.getRows();
+            this.cols = inst.getCols();
+            this.n = rows * cols;
+            this.frontier = frontier;
+            this.rng = rng;
+
+            Integer[][] clues = inst.getClues();
+            clue = new int[n];
+            neigh = new int[n][];
+            constrained = new boolean[n];
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    int i = r * cols + c;
+                    clue[i] = clues[r][c] == null ? -1 : clues[r][c];
+                    neigh[i] = neighborIndices(rows, cols, r, c);
+                }
+            }
+
+            for (int i = 0; i < n; i++) constrained[i] = frontier.compOf[i] >= 0;
+
+            // cases libres laissées à 0 : elles sont traitées analytiquement
+            mine = new int[n];
+            nbSum = new int[n];
+            compMines = new int[frontier.cells.length];
+            for (int i = 0; i < n; i++) {
+                if (constrained[i]) set(i, start[i / cols][i % cols]);
+            }
+        }
+
+        void pass() {
+            for (int c = 0; c < frontier.cells.length; c++) {
+                int[] cells = frontier.cells[c];
+                if (frontier.zdd[c] != null) {
+                    resample(c);
+                } else {
+                    for (int s = 0; s < Math.max(1, cells.length / 3); s++) {
+                        windowStep(cells[rng.nextInt(cells.length)]);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Batch batch(int size, long deadline) {
+            double[] sum = new double[n];
+            int done = 0;
+            while (done < size && (done == 0 || !expired(deadline))) {
+                pass();
+                double freeProb = frontier.freeProbability(constrainedMines);
+                for (int i = 0; i < n; i++) sum[i] += constrained[i] ? mine[i] : freeProb;
+                done++;
+            }
+            return new Batch(sum, done);
+        }
+
+        private void set(int i, int v) {
+            int delta = v - mine[i];
+            if (delta == 0) return;
+            mine[i] = v;
+            constrainedMines += delta;
+            compMines[frontier.compOf[i]] += delta;
+            for (int j : neigh[i]) nbSum[j] += delta;
+        }
+
+        /** Tirage exact de la composante c sachant le nombre de mines des autres. */
+        private void resample(int c) {
+            proposed++;
+            double[] logCount = frontier.logCount[c];
+            int outside = constrainedMines - compMines[c];
+
+            // le k courant a toujours un poids > 0
+            double[] byK = new double[logCount.length];
+            for (int k = 0; k < byK.length; k++) byK[k] = logCount[k] + frontier.logFree(outside + k);
+            int chosen = pickLog(byK, rng);
+
+            int[][] sol = frontier.zdd[c].sample(rng, chosen);
+            boolean changed = false;
+            for (int i : frontier.cells[c]) {
+                int v = sol[i / cols][i % cols];
+                if (v != mine[i]) {
+                    set(i, v);
+                    changed = true;
+                }
+            }
+            if (changed) accepted++;
+        }
+
+        /**
+         * Fenêtre 3x3 autour de center, restreinte aux cases contraintes : toutes les affectations
+         * compatibles avec le reste sont énumérées et l'une est tirée proportionnellement à son
+         * poids (heat-bath), ce qui laisse la loi uniforme sur les solutions invariante.
+         */
+        private void windowStep(int center) {
+            proposed++;
+
+            int[] w = new int[9];
+            int m = 0;
+            for (int dr = -1; dr <= 1; dr++) {
+                for (int dc = -1; dc <= 1; dc++) {
+                    int rr = center / cols + dr;
+                    int cc = center % cols + dc;
+                    if (rr < 0 || rr >= rows || cc < 0 || cc >= cols) continue;
+                    int i = rr * cols + cc;
+                    if (constrained[i]) w[m++] = i;
+                }
+            }
+            if (m == 0) return;
+
+            // indices touchés : somme hors fenêtre + masque des cases de la fenêtre voisines
+            int[] affected = new int[9 * 8];
+            int[] base = new int[affected.length];
+            int[] nbMask = new int[affected.length];
+            int a = 0;
+            int current = 0;
+            int minesInWindow = 0;
+            for (int p = 0; p < m; p++) {
+                if (mine[w[p]] == 1) {
+                    current |= 1 << p;
+                    minesInWindow++;
+                }
+            }
+            for (int p = 0; p < m; p++) {
+                for (int j : neigh[w[p]]) {
+                    if (clue[j] < 0) continue;
+                    int q = 0;
+                    while (q < a && affected[q] != j) q++;
+                    if (q == a) {
+                        affected[a] = j;
+                        base[a] = nbSum[j];
+                        a++;
+                    }
+                    nbMask[q] |= 1 << p;
+                    base[q] -= mine[w[p]];
+                }
+            }
+
+            // énumération des 2^m affectations compatibles
+            int outside = constrainedMines - minesInWindow;
+            double[] logW = new double[1 << m];
+            double maxLog = Double.NEGATIVE_INFINITY;
+            for (int mask = 0; mask < (1 << m); mask++) {
+                boolean ok = true;
+                for (int q = 0; q < a && ok; q++) {
+                    ok = base[q] + Integer.bitCount(mask & nbMask[q]) == clue[affected[q]];
+                }
+                logW[mask] = ok ? frontier.logFree(outside + Integer.bitCount(mask)) : Double.NEGATIVE_INFINITY;
+                maxLog = Math.max(maxLog, logW[mask]);
+            }
+
+            // tirage proportionnel au poids (l'état courant est toujours compatible)
+            double total = 0;
+            double[] weight = new double[logW.length];
+            for (int mask = 0; mask < logW.length; mask++) {
+                if (logW[mask] == Double.NEGATIVE_INFINITY) continue;
+                weight[mask] = Math.exp(logW[mask] - maxLog);
+                total += weight[mask];
+            }
+            double u = rng.nextDouble() * total;
+            int chosen = current;
+            for (int mask = 0; mask < logW.length; mask++) {
+                u -= weight[mask];
+                if (u <= 0 && weight[mask] > 0) {
+                    chosen = mask;
+                    break;
+                }
+            }
+            if (chosen == current) return;
+
+            accepted++;
+            for (int p = 0; p < m; p++) set(w[p], (chosen >> p) & 1);
+        }
+    }
+
+    /** Indice tiré proportionnellement à exp(logWeights[i]) ; -1 si tous les poids sont nuls. */
+    private static int pickLog(double[] logWeights, Random rng) {
+        double maxLog = Double.NEGATIVE_INFINITY;
+        for (double lw : logWeights) maxLog = Math.max(maxLog, lw);
+        if (maxLog == Double.NEGATIVE_INFINITY) return -1;
+
+        double[] weight = new double[logWeights.length];
+        double total = 0;
+        for (int i = 0; i < weight.length; i++) {
+            weight[i] = Math.exp(logWeights[i] - maxLog);
+            total += weight[i];
+        }
+        double u = rng.nextDouble() * total;
+        int last = -1;
+        for (int i = 0; i < weight.length; i++) {
+            if (weight[i] == 0) continue;
+            last = i;
+            u -= weight[i];
+            if (u <= 0) return i;
+        }
+        return last;   // arrondi
+    }
+
+    private static int[] neighborIndices(int rows, int cols, int r, int c) {
+        int[] out = new int[8];
+        int m = 0;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                if (dr == 0 && dc == 0) continue;
+                int rr = r + dr;
+                int cc = c + dc;
+                if (0 <= rr && rr < rows && 0 <= cc && cc < cols) {
+                    out[m++] = rr * cols + cc;
+                }
+            }
+        }
+        return Arrays.copyOf(out, m);
+    }
+
+    // ------------------------------------------------------------------
+
+    /** Attend au plus jusqu'à deadline (0 = sans limite) ; null si le résultat n'est pas prêt à temps. */
+    private static <T> T get(Future<T> f, long deadline) {
+        if (deadline == 0) return get(f);
+        try {
+            return f.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            f.cancel(true);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Échantillonnage interrompu", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Échec d'un flux d'échantillonnage", e.getCause());
+        }
+    }
+
+    private static <T> T get(Future<T> f) {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Échantillonnage interrompu", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Échec d'un flux d'échantillonnage", e.getCause());
+        }
+    }
+}
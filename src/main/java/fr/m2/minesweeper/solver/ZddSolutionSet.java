@@ -0,0 +1,639 @@
+package fr.m2.minesweeper.solver;
+
+import fr.m2.minesweeper.model.MinesweeperInstance;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Ensemble COMPLET des solutions d'une instance, compilé en ZDD
+ * (zero-suppressed decision diagram).
+ *
+ * - Variables : une par case, dans l'ordre ligne par ligne (index = r * cols + c).
+ * - Construction frontière par frontière : l'état d'un niveau ne garde que les sommes
+ *   partielles des indices "ouverts" (voisins déjà vus ET voisins pas encore vus)
+ *   + le nombre de mines posées si totalMines est fixé. Deux préfixes de même état
+ *   sont fusionnés, donc la mémoire dépend de la largeur de frontière et pas du
+ *   nombre de solutions.
+ * - Même sémantique que les modèles Choco / Backtracking : seules les contraintes
+ *   d'indices et le total de mines sont posés (le nombre de solutions est donc celui
+ *   qu'énumèrent les autres solveurs sans limite maxSolutions).
+ *
+ * Comptage, marginales, conditionnement et tirage uniforme se font directement sur le diagramme.
+ */
+public class ZddSolutionSet {
+
+    // Terminaux
+    private static final int ZERO = 0;   // ensemble vide
+    private static final int ONE = 1;    // {∅}
+
+    private final int rows;
+    private final int cols;
+
+    // Noeuds : var[n], lo[n] (case = 0), hi[n] (case = 1). Les terminaux ont var = nbVars.
+    private final int[] var;
+    private final int[] lo;
+    private final int[] hi;
+    private final int root;
+
+    private final int maxFrontierWidth;
+
+    // Calculés à la demande
+    private BigInteger[] upCounts;   // nb de solutions sous chaque noeud
+    private BigInteger[][] upByMines; // [noeud][k] : nb de solutions sous le noeud avec k mines
+
+    private ZddSolutionSet(int rows, int cols, int[] var, int[] lo, int[] hi, int root, int maxFrontierWidth) {
+        this.rows = rows;
+        this.cols = cols;
+        this.var = var;
+        this.lo = lo;
+        this.hi = hi;
+        this.root = root;
+        this.maxFrontierWidth = maxFrontierWidth;
+    }
+
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+
+    /** Nombre de noeuds du diagramme (terminaux compris). */
+    public int nodeCount() { return var.length; }
+
+    /** Nombre maximal d'états distincts sur un niveau pendant la compilation. */
+    public int getMaxFrontierWidth() { return maxFrontierWidth; }
+
+    // ------------------------------------------------------------------
+    // Compilation
+    // ------------------------------------------------------------------
+
+    public static ZddSolutionSet compile(MinesweeperInstance inst) {
+        return compile(inst, 0);
+    }
+
+    /**
+     * Compilation avec budget mémoire : renvoie null si un niveau dépasse maxWidth états
+     * (maxWidth <= 0 => pas de limite).
+     */
+    public static ZddSolutionSet compile(MinesweeperInstance inst, int maxWidth) {
+        return new Compiler(inst, null).compile(maxWidth);
+    }
+
+    /**
+     * Compilation restreinte à une région : les cases hors de variable (index r * cols + c)
+     * sont fixées à 0. Sert à UniformSolutionSampler, un diagramme par composante de frontière
+     * (l'instance ne porte alors que les indices de la composante).
+     */
+    static ZddSolutionSet compile(MinesweeperInstance inst, boolean[] variable, int maxWidth) {
+        return new Compiler(inst, variable).compile(maxWidth);
+    }
+
+    /**
+     * Compilation descendante (états par niveau) puis réduction ascendante.
+     */
+    private static class Compiler {
+
+        private final int rows, cols, n;
+        private final Integer[][] clues;
+        private final Integer totalMines;
+        private final boolean[] variable;   // null : toutes les cases sont libres
+
+        // Indices révélés : valeur, voisins triés (index de case)
+        private final int[] clueValue;
+        private final int[][] clueNeighbors;
+        private final int[] clueFirst, clueLast;
+
+        // cellClues[i] = indices (dans clueValue) dont la case i est voisine
+        private final int[][] cellClues;
+
+        // open[i] = indices ouverts à l'entrée du niveau i (ordre croissant)
+        private final int[][] open;
+
+        Compiler(MinesweeperInstance inst, boolean[] variable) {
+            this.rows = inst.getRows();
+            this.cols = inst.getCols();
+            this.n = rows * cols;
+            this.clues = inst.getClues();
+            this.totalMines = inst.getTotalMines();
+            this.variable = variable;
+
+            List<Integer> values = new ArrayList<>();
+            List<int[]> neigh = new ArrayList<>();
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    if (clues[r][c] == null) continue;
+                    values.add(clues[r][c]);
+                    neigh.add(neighborIndices(r, c));
+                }
+            }
+
+            int k = values.size();
+            clueValue = new int[k];
+            clueNeighbors = new int[k][];
+            clueFirst = new int[k];
+            clueLast = new int[k];
+            List<List<Integer>> byCell = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) byCell.add(new ArrayList<>());
+
+            for (int j = 0; j < k; j++) {
+                clueValue[j] = values.get(j);
+                clueNeighbors[j] = neigh.get(j);
+                int[] nb = clueNeighbors[j];
+                clueFirst[j] = nb.length == 0 ? -1 : nb[0];
+                clueLast[j] = nb.length == 0 ? -1 : nb[nb.length - 1];
+                for (int cell : nb) byCell.get(cell).add(j);
+            }
+
+            cellClues = new int[n][];
+            for (int i = 0; i < n; i++) {
+                cellClues[i] = byCell.get(i).stream().mapToInt(Integer::intValue).toArray();
+            }
+
+            // ouvert au niveau i : clueFirst < i <= clueLast
+            open = new int[n + 1][];
+            for (int i = 0; i <= n; i++) {
+                List<Integer> o = new ArrayList<>();
+                for (int j = 0; j < k; j++) {
+                    if (clueFirst[j] >= 0 && clueFirst[j] < i && i <= clueLast[j]) o.add(j);
+                }
+                open[i] = o.stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+
+        private int[] neighborIndices(int r, int c) {
+            int[] out = new int[8];
+            int m = 0;
+            for (int dr = -1; dr <= 1; dr++) {
+                for (int dc = -1; dc <= 1; dc++) {
+                    if (dr == 0 && dc == 0) continue;
+                    int rr = r + dr;
+                    int cc = c + dc;
+                    if (0 <= rr && rr < rows && 0 <= cc && cc < cols) {
+                        out[m++] = rr * cols + cc;
+                    }
+                }
+            }
+            return Arrays.copyOf(out, m);   // déjà trié (parcours ligne par ligne)
+        }
+
+        ZddSolutionSet compile(int widthLimit) {
+            // Indice sans aucun voisin (grille 1x1) : satisfiable seulement si 0
+            for (int j = 0; j < clueValue.length; j++) {
+                if (clueNeighbors[j].length == 0 && clueValue[j] != 0) {
+                    return emptySet();
+                }
+            }
+
+            // trans[i][s] = {état enfant si 0, état enfant si 1} au niveau i+1 (-1 = échec)
+            int[][][] trans = new int[n][][];
+            int maxWidth = 1;
+
+            List<StateKey> currentStates = new ArrayList<>();
+            currentStates.add(new StateKey(new int[open[0].length + 1]));
+
+            for (int i = 0; i < n; i++) {
+                Map<StateKey, Integer> next = new HashMap<>();
+                List<StateKey> nextStates = new ArrayList<>();
+                int[][] t = new int[currentStates.size()][2];
+
+                for (int s = 0; s < currentStates.size(); s++) {
+                    for (int v = 0; v <= 1; v++) {
+                        int[] child = step(i, currentStates.get(s).values, v);
+                        if (child == null) {
+                            t[s][v] = -1;
+                            continue;
+                        }
+                        StateKey key = new StateKey(child);
+                        Integer id = next.get(key);
+                        if (id == null) {
+                            id = nextStates.size();
+                            next.put(key, id);
+                            nextStates.add(key);
+                            if (widthLimit > 0 && nextStates.size() > widthLimit) return null;
+                        }
+                        t[s][v] = id;
+                    }
+                }
+
+                trans[i] = t;
+                currentStates = nextStates;
+                maxWidth = Math.max(maxWidth, currentStates.size());
+                if (currentStates.isEmpty()) break;
+            }
+
+            // Tous les niveaux ont été atteints avec au moins un état : les états finaux sont acceptants
+            // (step() a déjà vérifié indices fermés et total de mines).
+            return reduce(trans, currentStates.isEmpty() ? 0 : currentStates.size(), maxWidth);
+        }
+
+        /**
+         * Transition du niveau i (case i) avec valeur v.
+         * state = [sommes des indices open[i]..., mines posées]
+         */
+        private int[] step(int i, int[] state, int v) {
+            if (v == 1 && variable != null && !variable[i]) return null;
+            int[] from = open[i];
+            int[] to = open[i + 1];
+            int[] out = new int[to.length + 1];
+
+            // total de mines
+            int mines = state[from.length] + v;
+            if (totalMines != null) {
+                int remaining = n - (i + 1);
+                if (mines > totalMines || mines + remaining < totalMines) return null;
+                out[to.length] = mines;
+            }
+
+            // indices touchés par la case i
+            for (int j : cellClues[i]) {
+                int sum = sumOf(j, from, state) + v;
+                int remainingNb = countAfter(clueNeighbors[j], i);
+                if (sum > clueValue[j] || sum + remainingNb < clueValue[j]) return null;
+            }
+
+            // recopie des sommes pour les indices encore ouverts
+            for (int p = 0; p < to.length; p++) {
+                int j = to[p];
+                int sum = sumOf(j, from, state);
+                if (isNeighbor(j, i)) sum += v;
+                out[p] = sum;
+            }
+            return out;
+        }
+
+        private int sumOf(int clue, int[] from, int[] state) {
+            int p = Arrays.binarySearch(from, clue);
+            return p >= 0 ? state[p] : 0;
+        }
+
+        private boolean isNeighbor(int clue, int cell) {
+            return Arrays.binarySearch(clueNeighbors[clue], cell) >= 0;
+        }
+
+        private int countAfter(int[] sorted, int cell) {
+            int cnt = 0;
+            for (int x : sorted) if (x > cell) cnt++;
+            return cnt;
+        }
+
+        /**
+         * Réduction ascendante : un noeud par (niveau, état) vivant, règle de suppression
+         * des zéros (hi == ZERO => on garde lo) et table d'unicité par niveau.
+         */
+        private ZddSolutionSet reduce(int[][][] trans, int finalStates, int maxWidth) {
+            Builder b = new Builder(n);
+
+            // niveau n : chaque état final vaut ONE
+            int[] below = new int[finalStates];
+            Arrays.fill(below, ONE);
+
+            for (int i = n - 1; i >= 0; i--) {
+                int[][] t = trans[i];
+                if (t == null) {          // niveau jamais atteint (échec plus haut)
+                    below = new int[0];
+                    continue;
+                }
+                int[] nodes = new int[t.length];
+                Map<Long, Integer> unique = new HashMap<>();
+                for (int s = 0; s < t.length; s++) {
+                    int l = t[s][0] < 0 || t[s][0] >= below.length ? ZERO : below[t[s][0]];
+                    int h = t[s][1] < 0 || t[s][1] >= below.length ? ZERO : below[t[s][1]];
+                    nodes[s] = b.mk(i, l, h, unique);
+                }
+                below = nodes;
+            }
+
+            int root = below.length == 0 ? ZERO : below[0];
+            return b.build(rows, cols, root, maxWidth);
+        }
+
+        private ZddSolutionSet emptySet() {
+            return new Builder(n).build(rows, cols, ZERO, 0);
+        }
+    }
+
+    private static class StateKey {
+        final int[] values;
+        final int hash;
+
+        StateKey(int[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StateKey && Arrays.equals(values, ((StateKey) o).values);
+        }
+
+        @Override
+        public int hashCode() { return hash; }
+    }
+
+    /**
+     * Accumulateur de noeuds (tableaux extensibles). Les terminaux occupent les ids 0 et 1.
+     */
+    private static class Builder {
+        private final int nbVars;
+        private int[] var = new int[64];
+        private int[] lo = new int[64];
+        private int[] hi = new int[64];
+        private int size;
+
+        Builder(int nbVars) {
+            this.nbVars = nbVars;
+            add(nbVars, ZERO, ZERO);   // ZERO
+            add(nbVars, ONE, ONE);     // ONE
+        }
+
+        int mk(int v, int l, int h, Map<Long, Integer> unique) {
+            if (h == ZERO) return l;   // suppression des zéros
+            long key = ((long) l << 32) | (h & 0xffffffffL);
+            Integer id = unique.get(key);
+            if (id != null) return id;
+            id = add(v, l, h);
+            unique.put(key, id);
+            return id;
+        }
+
+        private int add(int v, int l, int h) {
+            if (size == var.length) {
+                var = Arrays.copyOf(var, size * 2);
+                lo = Arrays.copyOf(lo, size * 2);
+                hi = Arrays.copyOf(hi, size * 2);
+            }
+            var[size] = v;
+            lo[size] = l;
+            hi[size] = h;
+            return size++;
+        }
+
+        ZddSolutionSet build(int rows, int cols, int root, int maxWidth) {
+            return new ZddSolutionSet(rows, cols,
+                    Arrays.copyOf(var, size), Arrays.copyOf(lo, size), Arrays.copyOf(hi, size),
+                    root, maxWidth);
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Requêtes
+    // ------------------------------------------------------------------
+
+    /**
+     * Nombre exact de solutions.
+     */
+    public BigInteger count() {
+        return upCounts()[root];
+    }
+
+    /**
+     * Marginales : probabilité que chaque case soit une mine, sous la loi uniforme
+     * sur les solutions. Renvoie null si l'ensemble est vide.
+     */
+    public double[][] marginals() {
+        BigInteger total = count();
+        if (total.signum() == 0) return null;
+
+        BigInteger[] up = upCounts();
+        BigInteger[] down = downCounts();
+
+        // Les noeuds ont des ids croissants de bas en haut : on somme les arcs hi par variable
+        BigInteger[] mineCount = new BigInteger[rows * cols];
+        Arrays.fill(mineCount, BigInteger.ZERO);
+        for (int node = 2; node < var.length; node++) {
+            if (down[node].signum() == 0) continue;
+            mineCount[var[node]] = mineCount[var[node]].add(down[node].multiply(up[hi[node]]));
+        }
+
+        double[][] p = new double[rows][cols];
+        for (int i = 0; i < rows * cols; i++) {
+            p[i / cols][i % cols] = ratio(mineCount[i], total);
+        }
+        return p;
+    }
+
+    /**
+     * Conditionnement sur une nouvelle révélation : la case (r, c) n'est pas une mine
+     * et affiche l'indice clue (0 <= clue <= nombre de voisins).
+     *
+     * Attention : ce n'est pas équivalent à recompiler l'instance avec cet indice en plus.
+     * compile (comme les modèles Choco et backtracking) ne force pas les cases à indice à 0,
+     * alors qu'ici la case révélée est forcée à "pas de mine", comme dans une vraie partie.
+     */
+    public ZddSolutionSet conditionOnReveal(int r, int c, int clue) {
+        checkCell(r, c);
+        int cell = r * cols + c;
+        int[] nb = new int[8];
+        int m = 0;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                if (dr == 0 && dc == 0) continue;
+                int rr = r + dr;
+                int cc = c + dc;
+                if (0 <= rr && rr < rows && 0 <= cc && cc < cols) nb[m++] = rr * cols + cc;
+            }
+        }
+        if (clue < 0 || clue > m) {
+            throw new IllegalArgumentException("indice " + clue + " hors de 0.." + m + " en (" + r + "," + c + ")");
+        }
+        return new Conditioner(Arrays.copyOf(nb, m), clue, cell, 0).run();
+    }
+
+    /**
+     * Restriction d'une case à une valeur fixée (0 = pas de mine, 1 = mine).
+     */
+    public ZddSolutionSet restrict(int r, int c, int value) {
+        checkCell(r, c);
+        if (value != 0 && value != 1) {
+            throw new IllegalArgumentException("valeur 0 ou 1 attendue : " + value);
+        }
+        int cell = r * cols + c;
+        return new Conditioner(new int[0], -1, cell, value).run();
+    }
+
+    private void checkCell(int r, int c) {
+        if (r < 0 || r >= rows || c < 0 || c >= cols) {
+            throw new IllegalArgumentException("case (" + r + "," + c + ") hors de la grille " + rows + "x" + cols);
+        }
+    }
+
+    /**
+     * Tirage uniforme d'une solution (1 = mine). Renvoie null si l'ensemble est vide.
+     */
+    public int[][] sample(Random rng) {
+        BigInteger[] up = upCounts();
+        if (up[root].signum() == 0) return null;
+
+        int[][] grid = new int[rows][cols];
+        int node = root;
+        while (node > ONE) {
+            BigInteger total = up[node];
+            BigInteger pick = uniformBelow(total, rng);
+            if (pick.compareTo(up[lo[node]]) < 0) {
+                node = lo[node];
+            } else {
+                int i = var[node];
+                grid[i / cols][i % cols] = 1;
+                node = hi[node];
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Nombre de solutions par nombre de mines : countByMines()[k] = solutions à k mines
+     * (tableau de longueur 1 + nombre maximal de mines d'une solution).
+     */
+    public BigInteger[] countByMines() {
+        BigInteger[] counts = upByMines()[root];
+        return Arrays.copyOf(counts, counts.length);
+    }
+
+    /**
+     * Tirage uniforme parmi les solutions à exactement mines mines. Renvoie null s'il n'y en a pas.
+     */
+    public int[][] sample(Random rng, int mines) {
+        BigInteger[][] up = upByMines();
+        if (byMines(up, root, mines).signum() == 0) return null;
+
+        int[][] grid = new int[rows][cols];
+        int node = root;
+        int k = mines;
+        while (node > ONE) {
+            BigInteger below = byMines(up, lo[node], k);
+            BigInteger pick = uniformBelow(below.add(byMines(up, hi[node], k - 1)), rng);
+            if (pick.compareTo(below) < 0) {
+                node = lo[node];
+            } else {
+                int i = var[node];
+                grid[i / cols][i % cols] = 1;
+                node = hi[node];
+                k--;
+            }
+        }
+        return grid;
+    }
+
+    private static BigInteger byMines(BigInteger[][] up, int node, int k) {
+        return k < 0 || k >= up[node].length ? BigInteger.ZERO : up[node][k];
+    }
+
+    private BigInteger[][] upByMines() {
+        if (upByMines != null) return upByMines;
+        BigInteger[][] up = new BigInteger[var.length][];
+        up[ZERO] = new BigInteger[]{BigInteger.ZERO};
+        up[ONE] = new BigInteger[]{BigInteger.ONE};
+        for (int node = 2; node < var.length; node++) {
+            BigInteger[] l = up[lo[node]];
+            BigInteger[] h = up[hi[node]];
+            BigInteger[] u = new BigInteger[Math.max(l.length, h.length + 1)];
+            for (int k = 0; k < u.length; k++) {
+                BigInteger c = k < l.length ? l[k] : BigInteger.ZERO;
+                if (k >= 1 && k - 1 < h.length) c = c.add(h[k - 1]);
+                u[k] = c;
+            }
+            up[node] = u;
+        }
+        upByMines = up;
+        return up;
+    }
+
+    private static BigInteger uniformBelow(BigInteger bound, Random rng) {
+        int bits = bound.bitLength();
+        BigInteger x;
+        do {
+            x = new BigInteger(bits, rng);
+        } while (x.compareTo(bound) >= 0);
+        return x;
+    }
+
+    private static double ratio(BigInteger num, BigInteger den) {
+        // division en précision suffisante même pour des comptes énormes
+        int shift = Math.max(0, den.bitLength() - 60);
+        return num.shiftRight(shift).doubleValue() / den.shiftRight(shift).doubleValue();
+    }
+
+    private BigInteger[] upCounts() {
+        if (upCounts != null) return upCounts;
+        BigInteger[] up = new BigInteger[var.length];
+        up[ZERO] = BigInteger.ZERO;
+        up[ONE] = BigInteger.ONE;
+        // enfants toujours créés avant leurs parents : ids croissants
+        for (int node = 2; node < var.length; node++) {
+            up[node] = up[lo[node]].add(up[hi[node]]);
+        }
+        upCounts = up;
+        return up;
+    }
+
+    /** Nombre de chemins de la racine jusqu'à chaque noeud. */
+    private BigInteger[] downCounts() {
+        BigInteger[] down = new BigInteger[var.length];
+        Arrays.fill(down, BigInteger.ZERO);
+        down[root] = BigInteger.ONE;
+        for (int node = var.length - 1; node >= 2; node--) {
+            if (down[node].signum() == 0) continue;
+            down[lo[node]] = down[lo[node]].add(down[node]);
+            down[hi[node]] = down[hi[node]].add(down[node]);
+        }
+        return down;
+    }
+
+    /**
+     * Reconstruit un diagramme en filtrant les chemins :
+     * - la case forcedCell doit valoir forcedValue,
+     * - la somme des cases de sumCells doit valoir sumTarget (si sumTarget >= 0).
+     * Mémoïsation sur (noeud, somme partielle) : taille bornée par 9 x taille du diagramme.
+     */
+    private class Conditioner {
+        private final int[] sumCells;      // triés
+        private final int sumTarget;
+        private final int forcedCell;
+        private final int forcedValue;
+
+        private final Builder b = new Builder(rows * cols);
+        private final Map<Long, Integer> memo = new HashMap<>();
+        private final List<Map<Long, Integer>> unique = new ArrayList<>();
+
+        Conditioner(int[] sumCells, int sumTarget, int forcedCell, int forcedValue) {
+            this.sumCells = sumCells;
+            this.sumTarget = sumTarget;
+            this.forcedCell = forcedCell;
+            this.forcedValue = forcedValue;
+            for (int i = 0; i < rows * cols; i++) unique.add(new HashMap<>());
+        }
+
+        ZddSolutionSet run() {
+            int newRoot = follow(root, 0, 0);
+            return b.build(rows, cols, newRoot, maxFrontierWidth);
+        }
+
+        /**
+         * Suit un arc vers node ; les variables sautées (de level à var[node] exclus) valent 0.
+         */
+        private int follow(int node, int level, int sum) {
+            if (forcedValue == 1 && level <= forcedCell && forcedCell < var[node]) return ZERO;
+            return visit(node, sum);
+        }
+
+        private int visit(int node, int sum) {
+            if (node == ZERO) return ZERO;
+            if (node == ONE) return (sumTarget < 0 || sum == sumTarget) ? ONE : ZERO;
+
+            long key = ((long) node << 4) | sum;
+            Integer cached = memo.get(key);
+            if (cached != null) return cached;
+
+            int v = var[node];
+            int inc = Arrays.binarySearch(sumCells, v) >= 0 ? 1 : 0;
+
+            int l = (v == forcedCell && forcedValue == 1) ? ZERO : follow(lo[node], v + 1, sum);
+            int h = ZERO;
+            boolean hiAllowed = !(v == forcedCell && forcedValue == 0)
+                    && (sumTarget < 0 || sum + inc <= sumTarget);
+            if (hiAllowed) h = follow(hi[node], v + 1, sum + inc);
+
+            int res = b.mk(v, l, h, unique.get(v));
+            memo.put(key, res);
+            return res;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package fr.m2.minesweeper.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lecteur JSON minimal (objets, tableaux, nombres, chaînes, booléens, null),
+ * suffisant pour relire les instances exportées par exportToJson.
+ *
+ * Objets => Map<String, Object>, tableaux => List<Object>, nombres => Long ou Double.
+ * quote() sert à l'écriture des chaînes (réponses de SolverDaemon).
+ */
+public class Json {
+
+    private final String s;
+    private int pos;
+
+    private Json(String s) {
+        this.s = s;
+    }
+
+    public static Object parse(String text) {
+        Json p = new Json(text);
+        p.skipSpaces();
+        Object v = p.value();
+        p.skipSpaces();
+        if (p.pos != p.s.length()) throw p.error("contenu inattendu après la valeur");
+        return v;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> parseObject(String text) {
+        Object v = parse(text);
+        if (!(v instanceof Map)) throw new IllegalArgumentException("JSON : objet attendu");
+        return (Map<String, Object>) v;
+    }
+
+    /** Chaîne JSON entre guillemets (échappe \" \\ et les caractères de contrôle). */
+    public static String quote(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            switch (ch) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (ch < 0x20) sb.append(String.format("\\u%04x", (int) ch));
+                    else sb.append(ch);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private Object value() {
+        if (pos >= s.length()) throw error("fin de texte inattendue");
+        char ch = s.charAt(pos);
+        switch (ch) {
+            case '{': return object();
+            case '[': return array();
+            case '"': return string();
+            case 't': expect("true"); return Boolean.TRUE;
+            case 'f': expect("false"); return Boolean.FALSE;
+            case 'n': expect("null"); return null;
+            default: return number();
+        }
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        pos++; // {
+        skipSpaces();
+        if (peek() == '}') {
+            pos++;
+            return map;
+        }
+        while (true) {
+            skipSpaces();
+            if (peek() != '"') throw error("clé attendue");
+            String key = string();
+            skipSpaces();
+            if (peek() != ':') throw error("':' attendu");
+            pos++;
+            skipSpaces();
+            map.put(key, value());
+            skipSpaces();
+            char ch = peek();
+            pos++;
+            if (ch == '}') return map;
+            if (ch != ',') throw error("',' ou '}' attendu");
+        }
+    }
+
+    private List<Object> array() {
+        List<Object> list = new ArrayList<>();
+        pos++; // [
+        skipSpaces();
+        if (peek() == ']') {
+            pos++;
+            return list;
+        }
+        while (true) {
+            skipSpaces();
+            list.add(value());
+            skipSpaces();
+            char ch = peek();
+            pos++;
+            if (ch == ']') return list;
+            if (ch != ',') throw error("',' ou ']' attendu");
+        }
+    }
+
+    private String string() {
+        StringBuilder sb = new StringBuilder();
+        pos++; // "
+        while (true) {
+            if (pos >= s.length()) throw error("chaîne non terminée");
+            char ch = s.charAt(pos++);
+            if (ch == '"') return sb.toString();
+            if (ch != '\\') {
+                sb.append(ch);
+                continue;
+            }
+            if (pos >= s.length()) throw error("échappement incomplet");
+            char esc = s.charAt(pos++);
+            switch (esc) {
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    if (pos + 4 > s.length()) throw error("échappement \\u incomplet");
+                    try {
+                        sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("échappement \\u invalide");
+                    }
+                    pos += 4;
+                    break;
+                default: sb.append(esc);   // \" \\ \/
+            }
+        }
+    }
+
+    private Object number() {
+        int start = pos;
+        while (pos < s.length() && "+-0123456789.eE".indexOf(s.charAt(pos)) >= 0) pos++;
+        String num = s.substring(start, pos);
+        if (num.isEmpty()) throw error("valeur attendue");
+        try {
+            if (num.contains(".") || num.contains("e") || num.contains("E")) return Double.parseDouble(num);
+            return Long.parseLong(num);
+        } catch (NumberFormatException e) {
+            throw error("nombre invalide '" + num + "'");
+        }
+    }
+
+    private void expect(String word) {
+        if (!s.startsWith(word, pos)) throw error("'" + word + "' attendu");
+        pos += word.length();
+    }
+
+    private char peek() {
+        if (pos >= s.length()) throw error("fin de texte inattendue");
+        return s.charAt(pos);
+    }
+
+    private void skipSpaces() {
+        while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+    }
+
+    private IllegalArgumentException error(String msg) {
+        return new IllegalArgumentException("JSON invalide (position " + pos + ") : " + msg);
+    }
+}
@@ -0,0 +1,94 @@
+package fr.m2.minesweeper.util;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme de durées (ms) partageable entre threads sans verrou.
+ * Seaux de la série de Renard R10 (10 par décade, de 0.01 ms à 100 s) : un percentile est
+ * approché par la borne haute de son seau (erreur relative <= 25 %, bornée par le max observé).
+ */
+public class LatencyHistogram {
+
+    private static final double[] R10 = {1, 1.25, 1.6, 2, 2.5, 3.15, 4, 5, 6.3, 8};
+    private static final double[] BOUNDS_MS = new double[7 * R10.length + 1];
+
+    static {
+        int i = 0;
+        for (double decade = 0.01; i < BOUNDS_MS.length - 1; decade *= 10) {
+            for (double m : R10) BOUNDS_MS[i++] = m * decade;
+        }
+        BOUNDS_MS[i] = 100_000;
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS_MS.length + 1);  // dernier = au-delà
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        double ms = nanos / 1e6;
+        int b = 0;
+        while (b < BOUNDS_MS.length && ms > BOUNDS_MS[b]) b++;
+        counts.incrementAndGet(b);
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public double meanMs() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+    }
+
+    public double maxMs() {
+        return maxNanos.get() / 1e6;
+    }
+
+    /** p dans [0, 1]. */
+    public double percentileMs(double p) {
+        long n = count.sum();
+        if (n == 0) return 0;
+        long rank = (long) Math.ceil(p * n);
+        long seen = 0;
+        for (int b = 0; b <= BOUNDS_MS.length; b++) {
+            seen += counts.get(b);
+            if (seen >= rank && seen > 0) {
+                return b < BOUNDS_MS.length ? Math.min(BOUNDS_MS[b], maxMs()) : maxMs();
+            }
+        }
+        return maxMs();
+    }
+
+    /** {"count":..,"mean":..,"p50":..,"p90":..,"p99":..,"max":..,"buckets":{"<=1":n,...,">100000":n}} (seaux non vides). */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT,
+                "{\"count\":%d,\"mean\":%.3f,\"p50\":%.3f,\"p90\":%.3f,\"p99\":%.3f,\"max\":%.3f,\"buckets\":{",
+                count(), meanMs(), percentileMs(0.5), percentileMs(0.9), percentileMs(0.99), maxMs()));
+        boolean first = true;
+        for (int b = 0; b <= BOUNDS_MS.length; b++) {
+            long c = counts.get(b);
+            if (c == 0) continue;
+            if (!first) sb.append(',');
+            first = false;
+            String label = b < BOUNDS_MS.length
+                    ? "<=" + formatBound(BOUNDS_MS[b])
+                    : ">" + formatBound(BOUNDS_MS[BOUNDS_MS.length - 1]);
+            sb.append(Json.quote(label)).append(':').append(c);
+        }
+        return sb.append("}}").toString();
+    }
+
+    private static String formatBound(double ms) {
+        return new BigDecimal(ms).round(new MathContext(3)).stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,124 @@
+package fr.m2.minesweeper.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Journal de résultats en ajout seul (même format CSV que results_complete.csv).
+ *
+ * - À l'ouverture, les lignes complètes déjà présentes marquent leurs jobs
+ *   (size, keepProbability, seed, complete_method, variant) comme faits.
+ * - Une dernière ligne coupée par un arrêt brutal est retirée avant de reprendre.
+ * - Les lignes sont écrites par lots : flush tous les batchSize résultats, ou dès que le
+ *   dernier flush date de plus de FLUSH_INTERVAL_MS (et à la fermeture). Un arrêt brutal ne
+ *   perd donc qu'au plus une seconde de résultats, même quand chaque job est long.
+ */
+public class ResultJournal implements AutoCloseable {
+
+    public static final String HEADER =
+            "size,keepProbability,seed,complete_method,variant,solutionsFound,timeMs,status,instance_file";
+    private static final int NB_COLUMNS = 9;
+    private static final int KEY_COLUMNS = 5;
+    private static final long FLUSH_INTERVAL_MS = 1000;
+
+    private final Set<String> done = new HashSet<>();
+    private final BufferedWriter out;
+    private final int batchSize;
+    private int pending;
+    private long lastFlushMs = System.currentTimeMillis();
+
+    /**
+     * fresh = true : on repart d'un journal vide (l'ancien fichier est écrasé).
+     */
+    public ResultJournal(String path, int batchSize, boolean fresh) throws IOException {
+        this.batchSize = Math.max(1, batchSize);
+        File file = new File(path);
+
+        if (!fresh && file.exists()) {
+            truncatePartialLine(file);
+        }
+        boolean writeHeader = fresh || !file.exists() || file.length() == 0;
+        if (!writeHeader) {
+            load(file);
+        }
+
+        this.out = new BufferedWriter(new FileWriter(file, !writeHeader));
+        if (writeHeader) {
+            out.write(HEADER);
+            out.newLine();
+            out.flush();
+        }
+    }
+
+    private void load(File file) throws IOException {
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            String header = in.readLine();
+            if (header == null || !header.trim().equals(HEADER)) {
+                throw new IOException(file + " : en-tête inattendu, impossible de reprendre ce journal");
+            }
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] f = line.trim().split(",");
+                if (f.length != NB_COLUMNS) continue;
+                done.add(String.join(",", Arrays.copyOf(f, KEY_COLUMNS)));
+            }
+        }
+    }
+
+    /** Retire une éventuelle ligne non terminée par '\n' en fin de fichier. */
+    private static void truncatePartialLine(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long end = raf.length();
+            long pos = end;
+            while (pos > 0) {
+                raf.seek(pos - 1);
+                if (raf.read() == '\n') break;
+                pos--;
+            }
+            if (pos < end) raf.setLength(pos);
+        }
+    }
+
+    public static String key(int size, double keepProbability, long seed, String method, String variant) {
+        return String.format(Locale.ROOT, "%d,%.2f,%d,%s,%s", size, keepProbability, seed, method, variant);
+    }
+
+    public boolean isDone(int size, double keepProbability, long seed, String method, String variant) {
+        return done.contains(key(size, keepProbability, seed, method, variant));
+    }
+
+    public int doneCount() {
+        return done.size();
+    }
+
+    public void append(int size, double keepProbability, long seed, String method, String variant,
+                       int solutionsFound, long timeMs, String status, String instanceFile) throws IOException {
+        String k = key(size, keepProbability, seed, method, variant);
+        out.write(k + "," + solutionsFound + "," + timeMs + "," + status + "," + instanceFile);
+        out.newLine();
+        done.add(k);
+
+        if (++pending >= batchSize || System.currentTimeMillis() - lastFlushMs >= FLUSH_INTERVAL_MS) flush();
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+        pending = 0;
+        lastFlushMs = System.currentTimeMillis();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+}
@@ -0,0 +1,52 @@
+package fr.m2.minesweeper.util;
+
+import java.util.Locale;
+
+/**
+ * Lecture des limites de temps écrites en texte ("2000", "2000ms", "2s", "1.5s", "1m", "1h"),
+ * commune aux solveurs. Un nombre sans unité est en millisecondes (comme le lisait Choco).
+ * Choco ne sait pas lire "ms" (il le prend pour des minutes) : on lui passe toujours des
+ * millisecondes.
+ */
+public class TimeLimits {
+
+    private TimeLimits() {
+    }
+
+    /**
+     * Durée en millisecondes ; 0 si aucune limite (null, vide ou "0").
+     * Lève IllegalArgumentException sur un format non reconnu (durée négative comprise),
+     * pour qu'une faute de frappe ne devienne pas une exécution sans limite.
+     */
+    public static long toMillis(String timeLimit) {
+        if (timeLimit == null || timeLimit.isBlank()) return 0;
+        String s = timeLimit.trim().toLowerCase(Locale.ROOT);
+        double factor = 1;
+        String number = s;
+        if (s.endsWith("ms")) {
+            number = s.substring(0, s.length() - 2);
+        } else if (s.endsWith("s")) {
+            number = s.substring(0, s.length() - 1);
+            factor = 1000;
+        } else if (s.endsWith("m")) {
+            number = s.substring(0, s.length() - 1);
+            factor = 60_000;
+        } else if (s.endsWith("h")) {
+            number = s.substring(0, s.length() - 1);
+            factor = 3_600_000;
+        }
+        number = number.trim();
+        if (!number.matches("[0-9]+(\\.[0-9]+)?")) {
+            throw new IllegalArgumentException("limite de temps invalide '" + timeLimit
+                    + "' (attendu : 2000, 2000ms, 2s, 1.5m ou 1h)");
+        }
+        double value = Double.parseDouble(number);
+        return Math.round(value * factor);
+    }
+
+    /** Échéance absolue (System.currentTimeMillis) ; 0 si aucune limite. */
+    public static long deadline(long startMs, String timeLimit) {
+        long ms = toMillis(timeLimit);
+        return ms <= 0 ? 0 : startMs + ms;
+    }
+}